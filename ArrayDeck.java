@@ -0,0 +1,445 @@
+package solitaire;
+
+import java.util.Arrays;
+
+/**
+ * This class is a Solitaire deck held in an array instead of a circular
+ * linked list. The cards are a byte array, front first and rear last, and the
+ * positions of the two jokers are kept up to date as the cards move, so no
+ * step has to search for them. Joker A and Joker B swap cards in place, and
+ * the Triple Cut and Count Cut move whole blocks of cards with
+ * System.arraycopy into a second array, after which the two arrays trade
+ * places.
+ *
+ * The keys are exactly the ones that Solitaire.getKey gives for the same deck.
+ * They can be had one at a time, or a batch at a time in a byte array, which
+ * the ciphers of Solitaire then apply in a tight loop. The state of a deck is
+ * its card values, which can be saved with snapshot and brought back with
+ * restore.
+ *
+ * A deck may have any number n of cards from 3 to 255, such as the 54 cards
+ * of Schneier's Solitaire, with the jokers being n-1 (A) and n (B), and the
+ * keys 1..n-2. Besides the letter ciphers of Solitaire, a deck can encrypt
+ * and decrypt any bytes in place, adding or subtracting every key modulo 256.
+ */
+public class ArrayDeck {
+
+	/**
+	 * Number of cards in the deck of Solitaire
+	 */
+	static final int SIZE = 28;
+
+	/**
+	 * Number of cards in the deck of Schneier's Solitaire, a bridge deck with
+	 * two jokers
+	 */
+	public static final int SCHNEIER_SIZE = 54;
+
+	/**
+	 * Least number of cards in a deck
+	 */
+	public static final int MIN_SIZE = 3;
+
+	/**
+	 * Greatest number of cards in a deck, so that every card fits in a byte
+	 */
+	public static final int MAX_SIZE = 255;
+
+	/**
+	 * Number of keys made at a time by the byte ciphers
+	 */
+	static final int KEY_BATCH = 1 << 12;
+
+	/**
+	 * Number of cards in this deck
+	 */
+	int size;
+
+	/**
+	 * Value of Joker A, size-1
+	 */
+	int jokerA;
+
+	/**
+	 * Value of Joker B, size
+	 */
+	int jokerB;
+
+	/**
+	 * Card values, unsigned, deck[0] is the front card and deck[size-1] the
+	 * rear card
+	 */
+	byte[] deck;
+
+	/**
+	 * Second array that the cuts move the cards into
+	 */
+	private byte[] spare;
+
+	/**
+	 * Position of Joker A in deck
+	 */
+	int posA;
+
+	/**
+	 * Position of Joker B in deck
+	 */
+	int posB;
+
+	/**
+	 * Keys for the byte ciphers, made when first needed
+	 */
+	private byte[] keys;
+
+	private ArrayDeck() {
+	}
+
+	/**
+	 * Initializes this deck with given card values
+	 *
+	 * @param values
+	 *            Card values, front first, a permutation of 1..n for a number
+	 *            of cards n from 3 to 255
+	 * @throws IllegalArgumentException
+	 *             If the values are not such a permutation
+	 */
+	public ArrayDeck(int[] values) throws IllegalArgumentException {
+		size = values.length;
+		if (size < MIN_SIZE || size > MAX_SIZE) {
+			throw new IllegalArgumentException("Deck has " + size + " cards, not " + MIN_SIZE + ".." + MAX_SIZE);
+		}
+		jokerA = size - 1;
+		jokerB = size;
+		deck = new byte[size];
+		spare = new byte[size];
+		boolean[] seen = new boolean[size + 1];
+		for (int i = 0; i < size; i++) {
+			int v = values[i];
+			if (v < 1 || v > size || seen[v]) {
+				throw new IllegalArgumentException("Not a permutation of 1.." + size + ": card " + v);
+			}
+			seen[v] = true;
+			deck[i] = (byte) v;
+			if (v == jokerA) {
+				posA = i;
+			} else if (v == jokerB) {
+				posB = i;
+			}
+		}
+	}
+
+	/**
+	 * Makes an array deck with the cards of a circular linked list deck. The
+	 * deck must have the 28 cards of Solitaire, whose steps take 27 and 28 as
+	 * the jokers.
+	 *
+	 * @param rear
+	 *            Last node of the circular linked list
+	 * @return Array deck with the same cards in the same order
+	 * @throws IllegalArgumentException
+	 *             If the cards are not a permutation of 1..28
+	 */
+	public static ArrayDeck from(CardNode rear) throws IllegalArgumentException {
+		int[] values = new int[SIZE + 1];
+		int n = 0;
+		if (rear != null) {
+			CardNode ptr = rear;
+			do {
+				ptr = ptr.next;
+				values[n++] = ptr.cardValue;
+			} while (ptr != rear && n <= SIZE);
+		}
+		if (n != SIZE) {
+			throw new IllegalArgumentException("Deck does not have " + SIZE + " cards");
+		}
+		return new ArrayDeck(Arrays.copyOf(values, SIZE));
+	}
+
+	/**
+	 * Makes a copy of this deck, which gives the same keys as this deck from
+	 * here on, independently of it
+	 *
+	 * @return Copy of this deck
+	 */
+	public ArrayDeck copy() {
+		ArrayDeck d = new ArrayDeck();
+		d.size = size;
+		d.jokerA = jokerA;
+		d.jokerB = jokerB;
+		d.deck = deck.clone();
+		d.spare = new byte[size];
+		d.posA = posA;
+		d.posB = posB;
+		return d;
+	}
+
+	/**
+	 * Writes the state of this deck, which is just its card values, front
+	 * first, into an array
+	 *
+	 * @param dst
+	 *            Array that gets the state
+	 * @param off
+	 *            Index in dst of the first of size() bytes
+	 */
+	public void snapshot(byte[] dst, int off) {
+		System.arraycopy(deck, 0, dst, off, size);
+	}
+
+	/**
+	 * Gives the state of this deck, which is just its card values, front
+	 * first
+	 *
+	 * @return State, size() bytes, 28 for the deck of Solitaire
+	 */
+	public byte[] snapshot() {
+		return deck.clone();
+	}
+
+	/**
+	 * Makes a 28 card deck from a state saved by snapshot. The deck gives the
+	 * same keys as the deck that was saved did from the time it was saved.
+	 *
+	 * @param src
+	 *            Array that holds the state
+	 * @param off
+	 *            Index in src of the first of 28 bytes
+	 * @return Deck
+	 * @throws IllegalArgumentException
+	 *             If the state is not a permutation of 1..28
+	 */
+	public static ArrayDeck restore(byte[] src, int off) throws IllegalArgumentException {
+		return restore(src, off, SIZE);
+	}
+
+	/**
+	 * Makes a deck of a given size from a state saved by snapshot
+	 *
+	 * @param src
+	 *            Array that holds the state
+	 * @param off
+	 *            Index in src of the first of size bytes
+	 * @param size
+	 *            Number of cards
+	 * @return Deck
+	 * @throws IllegalArgumentException
+	 *             If the state is not a permutation of 1..size
+	 */
+	public static ArrayDeck restore(byte[] src, int off, int size) throws IllegalArgumentException {
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = src[off + i] & 0xFF;
+		}
+		return new ArrayDeck(values);
+	}
+
+	/**
+	 * Gives the number of cards in this deck
+	 *
+	 * @return Number of cards
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the cards of this deck back into the nodes of a circular linked
+	 * list deck of the same size, front first, so that Solitaire can go on
+	 * from where this deck is
+	 *
+	 * @param rear
+	 *            Last node of the circular linked list, which has size()
+	 *            nodes
+	 */
+	public void writeTo(CardNode rear) {
+		CardNode ptr = rear;
+		for (int i = 0; i < size; i++) {
+			ptr = ptr.next;
+			ptr.cardValue = deck[i] & 0xFF;
+		}
+	}
+
+	/**
+	 * Implements Step 1 - Joker A - on the deck: swaps Joker A with the card
+	 * after it, the front card if it is the rear card
+	 */
+	void jokerA() {
+		int i = posA, j = i + 1 == size ? 0 : i + 1;
+		int c = deck[j] & 0xFF;
+		deck[i] = (byte) c;
+		deck[j] = (byte) jokerA;
+		posA = j;
+		if (c == jokerB) {
+			posB = i;
+		}
+	}
+
+	/**
+	 * Implements Step 2 - Joker B - on the deck: moves Joker B two cards down,
+	 * going around to the front if needed
+	 */
+	void jokerB() {
+		int i = posB, j = i + 1 == size ? 0 : i + 1, k = j + 1 == size ? 0 : j + 1;
+		int c1 = deck[j] & 0xFF, c2 = deck[k] & 0xFF;
+		deck[i] = (byte) c1;
+		deck[j] = (byte) c2;
+		deck[k] = (byte) jokerB;
+		posB = k;
+		if (c1 == jokerA) {
+			posA = i;
+		} else if (c2 == jokerA) {
+			posA = j;
+		}
+	}
+
+	/**
+	 * Implements Step 3 - Triple Cut - on the deck: the cards after the second
+	 * joker go to the front, and the cards before the first joker go to the
+	 * rear
+	 */
+	void tripleCut() {
+		int a = Math.min(posA, posB), b = Math.max(posA, posB);
+		int bottom = size - 1 - b;
+		System.arraycopy(deck, b + 1, spare, 0, bottom);
+		System.arraycopy(deck, a, spare, bottom, b - a + 1);
+		System.arraycopy(deck, 0, spare, bottom + b - a + 1, a);
+		byte[] tmp = deck;
+		deck = spare;
+		spare = tmp;
+		if (posA == a) {
+			posA = bottom;
+			posB = size - 1 - a;
+		} else {
+			posB = bottom;
+			posA = size - 1 - a;
+		}
+	}
+
+	/**
+	 * Implements Step 4 - Count Cut - on the deck: as many cards from the
+	 * front as the value of the rear card (Joker A's value for Joker B) go to
+	 * just before the rear card
+	 */
+	void countCut() {
+		int cut = deck[size - 1] & 0xFF;
+		if (cut == jokerB) {
+			cut = jokerA;
+		}
+		if (cut >= size - 1) { // all cards but the rear, nothing moves
+			return;
+		}
+		int rest = size - 1 - cut;
+		System.arraycopy(deck, cut, spare, 0, rest);
+		System.arraycopy(deck, 0, spare, rest, cut);
+		spare[size - 1] = deck[size - 1];
+		byte[] tmp = deck;
+		deck = spare;
+		spare = tmp;
+		posA = posA == size - 1 ? posA : posA >= cut ? posA - cut : posA + rest;
+		posB = posB == size - 1 ? posB : posB >= cut ? posB - cut : posB + rest;
+	}
+
+	/**
+	 * Gets a key, as Solitaire.getKey does: calls the four steps, then counts
+	 * down based on the value of the front card and takes the next card value
+	 * as key, repeating the whole process as long as that card is a joker
+	 *
+	 * @return Key between 1 and size()-2, 26 for the deck of Solitaire
+	 */
+	public int nextKey() {
+		while (true) {
+			jokerA();
+			jokerB();
+			tripleCut();
+			countCut();
+			int k = deck[0] & 0xFF;
+			if (k == jokerB) {
+				k = jokerA;
+			}
+			int key = deck[k] & 0xFF;
+			if (key != jokerA && key != jokerB) {
+				return key;
+			}
+		}
+	}
+
+	/**
+	 * Fills part of an array with the next keys, one after the other, as
+	 * nextKey would give them. Keys above 127 wrap around to negative bytes.
+	 *
+	 * @param keys
+	 *            Array that gets the keys
+	 * @param off
+	 *            Index in keys of the first key
+	 * @param len
+	 *            Number of keys
+	 */
+	public void fill(byte[] keys, int off, int len) {
+		for (int i = off; i < off + len; i++) {
+			keys[i] = (byte) nextKey();
+		}
+	}
+
+	/**
+	 * Skips keys, leaving this deck as if nextKey had been called a number of
+	 * times
+	 *
+	 * @param n
+	 *            Number of keys to skip
+	 */
+	public void skip(long n) {
+		for (long i = 0; i < n; i++) {
+			nextKey();
+		}
+	}
+
+	/**
+	 * Encrypts bytes in place, adding the next key to every byte, modulo 256
+	 *
+	 * @param buf
+	 *            Bytes to be encrypted
+	 * @param off
+	 *            Index in buf of the first byte
+	 * @param len
+	 *            Number of bytes
+	 */
+	public void encrypt(byte[] buf, int off, int len) {
+		byte[] keys = keys();
+		for (int i = off, end = off + len; i < end; i += KEY_BATCH) {
+			int n = Math.min(KEY_BATCH, end - i);
+			fill(keys, 0, n);
+			for (int j = 0; j < n; j++) {
+				buf[i + j] += keys[j];
+			}
+		}
+	}
+
+	/**
+	 * Decrypts bytes in place, subtracting the next key from every byte,
+	 * modulo 256
+	 *
+	 * @param buf
+	 *            Bytes to be decrypted
+	 * @param off
+	 *            Index in buf of the first byte
+	 * @param len
+	 *            Number of bytes
+	 */
+	public void decrypt(byte[] buf, int off, int len) {
+		byte[] keys = keys();
+		for (int i = off, end = off + len; i < end; i += KEY_BATCH) {
+			int n = Math.min(KEY_BATCH, end - i);
+			fill(keys, 0, n);
+			for (int j = 0; j < n; j++) {
+				buf[i + j] -= keys[j];
+			}
+		}
+	}
+
+	private byte[] keys() {
+		if (keys == null) {
+			keys = new byte[KEY_BATCH];
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,121 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * This class is a small timing harness for the benchmark mains of the other
+ * packages. A task is run a number of times to warm up, so that its code has
+ * been compiled, and then timed over a number of runs. Every run is prepared
+ * by an untimed setup, for instance to copy the input of a sort, and the
+ * median and the fastest run are reported. The values returned by the runs
+ * are summed into a volatile field, so that the work cannot be optimized
+ * away.
+ *
+ * Tasks should run long enough, a millisecond or more, for the clock to time
+ * them well: work that takes a few nanoseconds, such as one step of the
+ * Solitaire cipher, is to be repeated in a loop inside the task, and its time
+ * divided by the number of repeats.
+ */
+public class Bench {
+
+	/**
+	 * Code to be timed
+	 */
+	public static abstract class Task {
+		/**
+		 * Prepares a run, untimed. Does nothing unless overridden.
+		 */
+		public void setup() {
+		}
+
+		/**
+		 * Runs the code to be timed once
+		 *
+		 * @return Any value that depends on the work done
+		 */
+		public abstract long run();
+	}
+
+	/**
+	 * Times of a task
+	 */
+	public static class Result {
+		/**
+		 * Median time of a run, in nanoseconds
+		 */
+		public long medianNanos;
+
+		/**
+		 * Time of the fastest run, in nanoseconds
+		 */
+		public long minNanos;
+
+		/**
+		 * Gives a rate from the median time of a run
+		 *
+		 * @param count
+		 *            Number of things done in one run, such as items sorted
+		 * @return Things done per second
+		 */
+		public double perSecond(long count) {
+			return medianNanos == 0 ? 0 : count / (medianNanos / 1e9);
+		}
+
+		/**
+		 * Gives a time per thing from the median time of a run
+		 *
+		 * @param count
+		 *            Number of things done in one run, such as steps
+		 * @return Nanoseconds per thing
+		 */
+		public double nanosEach(long count) {
+			return count == 0 ? 0 : (double) medianNanos / count;
+		}
+
+		public String toString() {
+			return String.format("median %.3f ms, min %.3f ms", medianNanos / 1e6, minNanos / 1e6);
+		}
+	}
+
+	/**
+	 * Gets the sum of the values returned by the runs
+	 */
+	static volatile long blackhole;
+
+	/**
+	 * Warms up a task, then times it
+	 *
+	 * @param task
+	 *            Task to be timed
+	 * @param warmups
+	 *            Number of untimed runs
+	 * @param runs
+	 *            Number of timed runs, at least 1
+	 * @return Times of the timed runs
+	 * @throws IllegalArgumentException
+	 *             If there are no timed runs
+	 */
+	public static Result time(Task task, int warmups, int runs) throws IllegalArgumentException {
+		if (runs < 1) {
+			throw new IllegalArgumentException("No timed runs: " + runs);
+		}
+		long sink = 0;
+		for (int i = 0; i < warmups; i++) {
+			task.setup();
+			sink += task.run();
+		}
+		long[] nanos = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			task.setup();
+			long t0 = System.nanoTime();
+			sink += task.run();
+			nanos[i] = System.nanoTime() - t0;
+		}
+		blackhole += sink;
+		Arrays.sort(nanos);
+		Result result = new Result();
+		result.medianNanos = nanos[runs / 2];
+		result.minNanos = nanos[0];
+		return result;
+	}
+}
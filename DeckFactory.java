@@ -0,0 +1,210 @@
+package solitaire;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class makes shuffled decks. Decks are shuffled with the Fisher-Yates
+ * shuffle, which makes every order of the cards equally likely, from a random
+ * number source that can be seeded (SplittableRandom) or secure
+ * (SecureRandom).
+ *
+ * Many decks can be made at once into one byte array, one byte per card, in
+ * parallel. The decks are made in fixed blocks, each from its own source
+ * split off in order before the blocks start, so with a seeded source the
+ * decks are the same whatever the number of threads.
+ */
+public class DeckFactory {
+
+	/**
+	 * Number of decks made by one task of the bulk API
+	 */
+	static final int BLOCK = 1 << 10;
+
+	/**
+	 * Source of random numbers for the shuffles
+	 */
+	public interface Source {
+		/**
+		 * Gives a random number
+		 *
+		 * @param bound
+		 *            Bound, positive
+		 * @return Random number, 0 to bound-1, all equally likely
+		 */
+		int nextInt(int bound);
+
+		/**
+		 * Gives a source for another thread. Its numbers must not be
+		 * correlated with those of this source.
+		 *
+		 * @return New source, or this source if it is thread safe
+		 */
+		Source split();
+	}
+
+	/**
+	 * Source of random numbers
+	 */
+	private Source source;
+
+	/**
+	 * Initializes this factory with an unseeded SplittableRandom
+	 */
+	public DeckFactory() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Initializes this factory with a seeded SplittableRandom, so that it
+	 * makes the same decks every time
+	 *
+	 * @param seed
+	 *            Seed
+	 */
+	public DeckFactory(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Initializes this factory with a SplittableRandom
+	 *
+	 * @param random
+	 *            Random number generator, not to be used elsewhere
+	 */
+	public DeckFactory(final SplittableRandom random) {
+		this(new Source() {
+			public int nextInt(int bound) {
+				return random.nextInt(bound);
+			}
+
+			public Source split() {
+				return new DeckFactory(random.split()).source;
+			}
+		});
+	}
+
+	/**
+	 * Initializes this factory with a secure random number generator, for
+	 * decks that are used as keys
+	 *
+	 * @param random
+	 *            Secure random number generator
+	 */
+	public DeckFactory(final SecureRandom random) {
+		this(new Source() {
+			public int nextInt(int bound) {
+				return random.nextInt(bound);
+			}
+
+			public Source split() {
+				return this; // SecureRandom is thread safe
+			}
+		});
+	}
+
+	/**
+	 * Initializes this factory with any source of random numbers
+	 *
+	 * @param source
+	 *            Source of random numbers
+	 */
+	public DeckFactory(Source source) {
+		this.source = source;
+	}
+
+	/**
+	 * Makes the card values of a shuffled deck
+	 *
+	 * @param size
+	 *            Number of cards
+	 * @return Values 1..size, shuffled
+	 */
+	public int[] shuffle(int size) {
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = i + 1;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int other = source.nextInt(i + 1);
+			int temp = values[i];
+			values[i] = values[other];
+			values[other] = temp;
+		}
+		return values;
+	}
+
+	/**
+	 * Makes a shuffled array deck
+	 *
+	 * @param size
+	 *            Number of cards, 3 to 255
+	 * @return Deck
+	 * @throws IllegalArgumentException
+	 *             If the size is out of range
+	 */
+	public ArrayDeck makeDeck(int size) throws IllegalArgumentException {
+		return new ArrayDeck(shuffle(size));
+	}
+
+	/**
+	 * Makes shuffled decks one after the other into a byte array, one byte
+	 * per card, in parallel in the common fork-join pool. Every deck is in the
+	 * form saved by ArrayDeck.snapshot, and can be made into an ArrayDeck with
+	 * ArrayDeck.restore.
+	 *
+	 * @param buf
+	 *            Array that gets the decks
+	 * @param off
+	 *            Index in buf of the first card of the first deck
+	 * @param count
+	 *            Number of decks
+	 * @param size
+	 *            Number of cards in every deck, 3 to 255
+	 * @throws IllegalArgumentException
+	 *             If the size is out of range, or buf is too short
+	 */
+	public void makeDecks(final byte[] buf, final int off, final int count, final int size)
+			throws IllegalArgumentException {
+		if (size < ArrayDeck.MIN_SIZE || size > ArrayDeck.MAX_SIZE) {
+			throw new IllegalArgumentException("Deck size out of range: " + size);
+		}
+		if (count < 0 || off < 0 || (long) count * size > buf.length - off) {
+			throw new IllegalArgumentException("No room for " + count + " decks of " + size + " cards");
+		}
+		// the sources are split here, in order, so the result does not depend on the threads
+		ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for (int first = 0; first < count; first += BLOCK) {
+			final int lo = first, hi = Math.min(count, first + BLOCK);
+			final Source source = this.source.split();
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				protected void compute() {
+					for (int d = lo; d < hi; d++) {
+						shuffle(buf, off + d * size, size, source);
+					}
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(tasks);
+	}
+
+	/**
+	 * Shuffles a deck of cards 1..size into buf[at..at+size)
+	 */
+	private static void shuffle(byte[] buf, int at, int size, Source source) {
+		for (int i = 0; i < size; i++) {
+			buf[at + i] = (byte) (i + 1);
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int other = at + source.nextInt(i + 1);
+			byte temp = buf[at + i];
+			buf[at + i] = buf[other];
+			buf[other] = temp;
+		}
+	}
+}
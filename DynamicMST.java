@@ -0,0 +1,630 @@
+package apps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.NoSuchElementException;
+
+import structures.Graph;
+import structures.Vertex;
+
+/**
+ * This class maintains the MST of a graph while edges are inserted, deleted,
+ * or have their weights decreased, without running MST.initialize and
+ * MST.execute again.
+ *
+ * The tree edges are kept in a link-cut tree in which every edge is a node
+ * between its two vertices, so that the heaviest edge on the tree path between
+ * any two vertices is found in O(log n) amortized time. An inserted (or
+ * lighter) non-tree edge replaces the heaviest edge on the cycle it closes,
+ * if it is lighter than that edge (cycle property). When a tree edge is
+ * deleted, the lightest non-tree edge that reconnects the two halves takes
+ * its place (cut property).
+ *
+ * To find that edge, both halves are searched breadth first, one vertex at a
+ * time from each, over the tree edges only, until the smaller half has been
+ * searched completely. Then the non-tree edges at the vertices of the smaller
+ * half are scanned, and those whose other end is not in it are the ones that
+ * cross the cut. If the smaller half has k vertices with d non-tree edge ends,
+ * a deletion takes O(k + d) time, plus O(log n) amortized to cut and link.
+ * This is small when the deleted edge cuts off a small subtree, as most edges
+ * of an MST do, but is not bounded by a polylog: when the halves are about
+ * the same size it is O(n + m), the cost of a rebuild without the sort. The
+ * leveled replacement search of Holm, de Lichtenberg and Thorup would bound
+ * it at O(log^2 n) amortized, at a much higher constant cost.
+ *
+ * Between any pair of vertices only one edge is kept; if the graph has
+ * parallel edges, the lightest one is used.
+ */
+public class DynamicMST {
+
+	/**
+	 * Null link in the link-cut tree
+	 */
+	private static final int NIL = -1;
+
+	/**
+	 * Edge between two vertices
+	 */
+	private static class Edge implements Comparable<Edge> {
+		int u, v;
+		int weight;
+		long id;
+
+		/**
+		 * Link-cut tree node of this edge if it is in the MST, NIL otherwise
+		 */
+		int node = NIL;
+
+		/**
+		 * Links of this edge in the edge lists of u and of v
+		 */
+		Edge prevU, nextU, prevV, nextV;
+
+		Edge(int u, int v, int weight, long id) {
+			this.u = u;
+			this.v = v;
+			this.weight = weight;
+			this.id = id;
+		}
+
+		public int compareTo(Edge other) {
+			if (weight != other.weight) {
+				return weight < other.weight ? -1 : 1;
+			}
+			return id < other.id ? -1 : id > other.id ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Vertices, by vertex number
+	 */
+	private Vertex[] vertices;
+
+	/**
+	 * Vertex numbers
+	 */
+	private IdentityHashMap<Vertex,Integer> index;
+
+	/**
+	 * All edges, keyed by vertex pair
+	 */
+	private HashMap<Long,Edge> edges;
+
+	/**
+	 * Tree edges at every vertex, in doubly linked lists
+	 */
+	private Edge[] treeEdges;
+
+	/**
+	 * Non-tree edges at every vertex, in doubly linked lists
+	 */
+	private Edge[] nonTreeEdges;
+
+	/**
+	 * Queues of the breadth first searches of a deletion, and the search
+	 * that reached every vertex, by the mark of the search
+	 */
+	private int[] queueA, queueB, seen;
+
+	/**
+	 * Mark of the last search
+	 */
+	private int mark;
+
+	/**
+	 * Sum of the weights of the MST edges
+	 */
+	private long totalWeight;
+
+	/**
+	 * Number of edges ever added, used to order edges of equal weight
+	 */
+	private long added;
+
+	// link-cut tree: nodes 0..n-1 are vertices, nodes n..2n-2 are tree edges
+	private int n;
+	private int[] left, right, par, val, max;
+	private boolean[] rev;
+	private Edge[] edgeAt;
+	private int[] free;
+	private int freeCount;
+	private int[] stack;
+
+	/**
+	 * Initializes this object with a graph and an MST of the graph, such as the
+	 * result of MST.execute.
+	 *
+	 * @param graph
+	 *            Graph
+	 * @param mst
+	 *            Arcs of an MST of the graph
+	 * @throws IllegalArgumentException
+	 *             If an MST arc is not an edge of the graph, or the arcs have a
+	 *             cycle
+	 */
+	public DynamicMST(Graph graph, ArrayList<PartialTree.Arc> mst) throws IllegalArgumentException {
+		vertices = graph.vertices;
+		n = vertices.length;
+		index = new IdentityHashMap<Vertex,Integer>(2 * n);
+		for (int i = 0; i < n; i++) {
+			index.put(vertices[i], i);
+		}
+
+		int nodes = 2 * n;
+		left = new int[nodes];
+		right = new int[nodes];
+		par = new int[nodes];
+		val = new int[nodes];
+		max = new int[nodes];
+		rev = new boolean[nodes];
+		edgeAt = new Edge[nodes];
+		stack = new int[nodes];
+		free = new int[n];
+		for (int x = 0; x < nodes; x++) {
+			left[x] = right[x] = par[x] = NIL;
+			max[x] = x;
+		}
+		for (int x = nodes - 1; x >= n; x--) {
+			free[freeCount++] = x;
+		}
+
+		treeEdges = new Edge[n];
+		nonTreeEdges = new Edge[n];
+		queueA = new int[n];
+		queueB = new int[n];
+		seen = new int[n];
+
+		edges = new HashMap<Long,Edge>();
+		for (int i = 0; i < n; i++) {
+			for (Vertex.Neighbor ptr = vertices[i].neighbors; ptr != null; ptr = ptr.next) {
+				int j = index.get(ptr.vertex);
+				Long key = key(i, j);
+				Edge e = edges.get(key);
+				if (e == null) {
+					e = new Edge(i, j, ptr.weight, added++);
+					edges.put(key, e);
+					addTo(nonTreeEdges, e);
+				} else if (ptr.weight < e.weight) {
+					e.weight = ptr.weight;
+				}
+			}
+		}
+		for (PartialTree.Arc a : mst) {
+			Edge e = edges.get(key(vertexNumber(a.v1), vertexNumber(a.v2)));
+			if (e == null || e.node != NIL || connected(e.u, e.v)) {
+				throw new IllegalArgumentException("Not an MST arc: " + a);
+			}
+			linkEdge(e);
+		}
+	}
+
+	/**
+	 * Inserts a new edge into the graph, and updates the MST
+	 *
+	 * @param v1
+	 *            One end of the edge
+	 * @param v2
+	 *            Other end of the edge
+	 * @param weight
+	 *            Edge weight
+	 * @throws IllegalArgumentException
+	 *             If there already is an edge between the vertices
+	 */
+	public void insertEdge(Vertex v1, Vertex v2, int weight) throws IllegalArgumentException {
+		int u = vertexNumber(v1), v = vertexNumber(v2);
+		Long key = key(u, v);
+		if (u == v || edges.containsKey(key)) {
+			throw new IllegalArgumentException("Edge exists: " + v1 + " " + v2);
+		}
+		Edge e = new Edge(u, v, weight, added++);
+		edges.put(key, e);
+		addTo(nonTreeEdges, e);
+		offer(e);
+	}
+
+	/**
+	 * Decreases the weight of an edge, and updates the MST
+	 *
+	 * @param v1
+	 *            One end of the edge
+	 * @param v2
+	 *            Other end of the edge
+	 * @param weight
+	 *            New weight, no more than the current weight
+	 * @throws NoSuchElementException
+	 *             If there is no edge between the vertices
+	 * @throws IllegalArgumentException
+	 *             If the new weight is more than the current weight
+	 */
+	public void decreaseWeight(Vertex v1, Vertex v2, int weight)
+			throws NoSuchElementException, IllegalArgumentException {
+		Edge e = edges.get(key(vertexNumber(v1), vertexNumber(v2)));
+		if (e == null) {
+			throw new NoSuchElementException();
+		}
+		if (weight > e.weight) {
+			throw new IllegalArgumentException("Weight increase: " + e.weight + " to " + weight);
+		}
+		if (e.node != NIL) {
+			// a tree edge only gets better, the MST is unchanged
+			int x = e.node;
+			access(x);
+			splay(x);
+			totalWeight -= e.weight - weight;
+			e.weight = weight;
+			val[x] = weight;
+			pull(x);
+		} else {
+			e.weight = weight;
+			offer(e);
+		}
+	}
+
+	/**
+	 * Deletes an edge from the graph, and updates the MST. If the edge was in
+	 * the MST and no other edge reconnects the graph, the result is a spanning
+	 * forest.
+	 *
+	 * @param v1
+	 *            One end of the edge
+	 * @param v2
+	 *            Other end of the edge
+	 * @throws NoSuchElementException
+	 *             If there is no edge between the vertices
+	 */
+	public void deleteEdge(Vertex v1, Vertex v2) throws NoSuchElementException {
+		Edge e = edges.remove(key(vertexNumber(v1), vertexNumber(v2)));
+		if (e == null) {
+			throw new NoSuchElementException();
+		}
+		if (e.node == NIL) {
+			removeFrom(nonTreeEdges, e);
+			return;
+		}
+		cutEdge(e);
+		removeFrom(nonTreeEdges, e);
+		Edge r = replacement(e.u, e.v);
+		if (r != null) {
+			linkEdge(r);
+		}
+	}
+
+	/**
+	 * Gives the arcs that are currently in the MST
+	 *
+	 * @return Array list of all arcs that are in the MST - sequence of arcs is
+	 *         irrelevant
+	 */
+	public ArrayList<PartialTree.Arc> arcs() {
+		ArrayList<PartialTree.Arc> fin = new ArrayList<PartialTree.Arc>();
+		for (int x = n; x < edgeAt.length; x++) {
+			Edge e = edgeAt[x];
+			if (e != null) {
+				fin.add(new PartialTree.Arc(vertices[e.u], vertices[e.v], e.weight));
+			}
+		}
+		return fin;
+	}
+
+	/**
+	 * Gives the sum of the weights of the MST arcs
+	 *
+	 * @return Total weight
+	 */
+	public long totalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Puts an edge that is not in the MST into the MST if it closes no cycle,
+	 * or if it is lighter than the heaviest edge on the cycle it closes.
+	 */
+	private void offer(Edge e) {
+		if (!connected(e.u, e.v)) {
+			linkEdge(e);
+			return;
+		}
+		makeRoot(e.u);
+		access(e.v);
+		splay(e.v);
+		Edge heaviest = edgeAt[max[e.v]];
+		if (e.weight < heaviest.weight) {
+			cutEdge(heaviest);
+			linkEdge(e);
+		}
+	}
+
+	/**
+	 * Finds the lightest non-tree edge between the two halves of the MST that
+	 * are left when the tree edge between u and v has been cut. The halves are
+	 * searched in lockstep until the smaller one is done, and only the
+	 * non-tree edges of the smaller half are scanned.
+	 *
+	 * @return Lightest edge across the cut, null if there is none
+	 */
+	private Edge replacement(int u, int v) {
+		if (mark > Integer.MAX_VALUE - 2) {
+			Arrays.fill(seen, 0);
+			mark = 0;
+		}
+		int markA = ++mark, markB = ++mark;
+		queueA[0] = u;
+		queueB[0] = v;
+		seen[u] = markA;
+		seen[v] = markB;
+		int headA = 0, tailA = 1, headB = 0, tailB = 1;
+		while (headA < tailA && headB < tailB) {
+			tailA = visit(queueA[headA++], queueA, tailA, markA);
+			tailB = visit(queueB[headB++], queueB, tailB, markB);
+		}
+		int[] queue = queueA;
+		int size = tailA, side = markA;
+		if (headA < tailA) { // B was done first
+			queue = queueB;
+			size = tailB;
+			side = markB;
+		}
+
+		Edge best = null;
+		for (int i = 0; i < size; i++) {
+			int x = queue[i];
+			for (Edge r = nonTreeEdges[x]; r != null; r = next(r, x)) {
+				if (seen[other(r, x)] != side && (best == null || r.compareTo(best) < 0)) {
+					best = r;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds the vertices across the tree edges of a vertex that are not yet
+	 * marked to a search queue, and marks them
+	 *
+	 * @return New tail of the queue
+	 */
+	private int visit(int x, int[] queue, int tail, int side) {
+		for (Edge t = treeEdges[x]; t != null; t = next(t, x)) {
+			int y = other(t, x);
+			if (seen[y] != side) {
+				seen[y] = side;
+				queue[tail++] = y;
+			}
+		}
+		return tail;
+	}
+
+	private static int other(Edge e, int x) {
+		return e.u == x ? e.v : e.u;
+	}
+
+	private static Edge next(Edge e, int x) {
+		return e.u == x ? e.nextU : e.nextV;
+	}
+
+	/**
+	 * Puts an edge at the front of the edge lists of both its ends
+	 */
+	private static void addTo(Edge[] lists, Edge e) {
+		e.prevU = e.prevV = null;
+		e.nextU = lists[e.u];
+		if (e.nextU != null) {
+			setPrev(e.nextU, e.u, e);
+		}
+		lists[e.u] = e;
+		if (e.v != e.u) {
+			e.nextV = lists[e.v];
+			if (e.nextV != null) {
+				setPrev(e.nextV, e.v, e);
+			}
+			lists[e.v] = e;
+		}
+	}
+
+	/**
+	 * Takes an edge out of the edge lists of both its ends
+	 */
+	private static void removeFrom(Edge[] lists, Edge e) {
+		unlink(lists, e, e.u, e.prevU, e.nextU);
+		if (e.v != e.u) {
+			unlink(lists, e, e.v, e.prevV, e.nextV);
+		}
+	}
+
+	private static void unlink(Edge[] lists, Edge e, int x, Edge prev, Edge next) {
+		if (prev == null) {
+			lists[x] = next;
+		} else if (prev.u == x) {
+			prev.nextU = next;
+		} else {
+			prev.nextV = next;
+		}
+		if (next != null) {
+			setPrev(next, x, prev);
+		}
+	}
+
+	private static void setPrev(Edge e, int x, Edge prev) {
+		if (e.u == x) {
+			e.prevU = prev;
+		} else {
+			e.prevV = prev;
+		}
+	}
+
+	private int vertexNumber(Vertex v) throws NoSuchElementException {
+		Integer i = index.get(v);
+		if (i == null) {
+			throw new NoSuchElementException("Not a vertex of the graph: " + v);
+		}
+		return i;
+	}
+
+	private static Long key(int u, int v) {
+		return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+	}
+
+	private void linkEdge(Edge e) {
+		removeFrom(nonTreeEdges, e);
+		addTo(treeEdges, e);
+		int x = free[--freeCount];
+		e.node = x;
+		edgeAt[x] = e;
+		val[x] = e.weight;
+		max[x] = x;
+		link(e.u, x);
+		link(x, e.v);
+		totalWeight += e.weight;
+	}
+
+	private void cutEdge(Edge e) {
+		removeFrom(treeEdges, e);
+		addTo(nonTreeEdges, e);
+		int x = e.node;
+		cut(e.u, x);
+		cut(x, e.v);
+		edgeAt[x] = null;
+		free[freeCount++] = x;
+		e.node = NIL;
+		totalWeight -= e.weight;
+	}
+
+	// link-cut tree operations, all iterative
+
+	private boolean isRoot(int x) {
+		int p = par[x];
+		return p == NIL || (left[p] != x && right[p] != x);
+	}
+
+	private void pull(int x) {
+		int m = x;
+		if (left[x] != NIL && heavier(max[left[x]], m)) {
+			m = max[left[x]];
+		}
+		if (right[x] != NIL && heavier(max[right[x]], m)) {
+			m = max[right[x]];
+		}
+		max[x] = m;
+	}
+
+	/**
+	 * Tells if node a holds a heavier edge than node b. Vertex nodes, below
+	 * n, hold no edge, so an edge node of any weight is heavier than them.
+	 */
+	private boolean heavier(int a, int b) {
+		return a >= n && (b < n || val[a] > val[b]);
+	}
+
+	private void push(int x) {
+		if (rev[x]) {
+			int tmp = left[x];
+			left[x] = right[x];
+			right[x] = tmp;
+			if (left[x] != NIL) {
+				rev[left[x]] = !rev[left[x]];
+			}
+			if (right[x] != NIL) {
+				rev[right[x]] = !rev[right[x]];
+			}
+			rev[x] = false;
+		}
+	}
+
+	private void rotate(int x) {
+		int p = par[x], g = par[p];
+		boolean pRoot = isRoot(p);
+		if (left[p] == x) {
+			left[p] = right[x];
+			if (right[x] != NIL) {
+				par[right[x]] = p;
+			}
+			right[x] = p;
+		} else {
+			right[p] = left[x];
+			if (left[x] != NIL) {
+				par[left[x]] = p;
+			}
+			left[x] = p;
+		}
+		par[p] = x;
+		par[x] = g;
+		if (!pRoot) {
+			if (left[g] == p) {
+				left[g] = x;
+			} else {
+				right[g] = x;
+			}
+		}
+		pull(p);
+		pull(x);
+	}
+
+	private void splay(int x) {
+		int top = 0;
+		stack[top++] = x;
+		for (int y = x; !isRoot(y); y = par[y]) {
+			stack[top++] = par[y];
+		}
+		while (top > 0) {
+			push(stack[--top]);
+		}
+		while (!isRoot(x)) {
+			int p = par[x];
+			if (!isRoot(p)) {
+				int g = par[p];
+				if ((left[g] == p) == (left[p] == x)) {
+					rotate(p);
+				} else {
+					rotate(x);
+				}
+			}
+			rotate(x);
+		}
+	}
+
+	private void access(int x) {
+		int last = NIL;
+		for (int y = x; y != NIL; y = par[y]) {
+			splay(y);
+			right[y] = last;
+			pull(y);
+			last = y;
+		}
+		splay(x);
+	}
+
+	private void makeRoot(int x) {
+		access(x);
+		rev[x] = !rev[x];
+	}
+
+	private int findRoot(int x) {
+		access(x);
+		push(x);
+		while (left[x] != NIL) {
+			x = left[x];
+			push(x);
+		}
+		splay(x);
+		return x;
+	}
+
+	private boolean connected(int u, int v) {
+		return u == v || findRoot(u) == findRoot(v);
+	}
+
+	private void link(int u, int v) {
+		makeRoot(u);
+		par[u] = v;
+	}
+
+	private void cut(int u, int v) {
+		makeRoot(u);
+		access(v);
+		left[v] = NIL;
+		par[u] = NIL;
+		pull(v);
+	}
+}
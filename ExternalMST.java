@@ -0,0 +1,307 @@
+package apps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * This class finds the MST of a graph that is too large for the in-memory
+ * algorithm of MST. The edges of a binary graph file are sorted by weight on
+ * disk: runs of at most a bounded number of edges are sorted in memory and
+ * written to temporary files, then the runs are merged. The merged edge stream
+ * goes through Kruskal's algorithm, with a compact union-find over vertex
+ * numbers as the only per-vertex state, and the MST arcs are written out to a
+ * binary graph file as they are found.
+ */
+public class ExternalMST {
+
+	/**
+	 * Bytes of memory used per buffered edge while the runs are formed: three
+	 * ints for the record, and a long sort key
+	 */
+	static final int BYTES_PER_EDGE = 3 * 4 + 8;
+
+	/**
+	 * Smallest read buffer for a run during the merge
+	 */
+	static final int MIN_READ_BUFFER = 4096;
+
+	/**
+	 * Sizes, I/O volume and running time of an external MST run
+	 */
+	public static class Report {
+		/**
+		 * Number of edges read from the input graph
+		 */
+		public long edgesRead;
+
+		/**
+		 * Number of sorted runs written to disk
+		 */
+		public int runs;
+
+		/**
+		 * Number of arcs in the MST (a spanning forest if the graph is not
+		 * connected)
+		 */
+		public long arcs;
+
+		/**
+		 * Bytes read, from the input graph and the runs
+		 */
+		public long bytesRead;
+
+		/**
+		 * Bytes written, to the runs and the output graph
+		 */
+		public long bytesWritten;
+
+		/**
+		 * Time to form the runs, in nanoseconds
+		 */
+		public long sortNanos;
+
+		/**
+		 * Time to merge the runs and find the MST, in nanoseconds
+		 */
+		public long mergeNanos;
+
+		public String toString() {
+			double secs = (sortNanos + mergeNanos) / 1e9;
+			return "edges=" + edgesRead + " runs=" + runs + " arcs=" + arcs + " read=" + bytesRead
+					+ "B written=" + bytesWritten + "B sort=" + sortNanos / 1000000 + "ms merge="
+					+ mergeNanos / 1000000 + "ms (" + (long) ((bytesRead + bytesWritten) / secs / (1 << 20))
+					+ " MB/s)";
+		}
+	}
+
+	/**
+	 * Finds the MST of a graph in a binary graph file, and writes its arcs to
+	 * another binary graph file with the same vertices.
+	 *
+	 * @param graph
+	 *            Input graph
+	 * @param outFile
+	 *            Name of binary graph file to which the MST arcs are written
+	 * @param bufferBytes
+	 *            Memory budget for the edge buffer and the run read buffers
+	 * @param tmpDir
+	 *            Directory for the temporary run files, null for the default
+	 *            temporary directory
+	 * @return Report of sizes, I/O volume and running time
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	public static Report execute(GraphFile graph, String outFile, long bufferBytes, File tmpDir)
+			throws IOException {
+		Report report = new Report();
+		long m = graph.edgeCount();
+		int chunk = (int) Math.max(1, Math.min(Math.min(m, bufferBytes / BYTES_PER_EDGE), Integer.MAX_VALUE - 8));
+
+		long start = System.nanoTime();
+		File[] runs = new File[(int) ((m + chunk - 1) / chunk)];
+		try {
+			int[] v1 = new int[chunk], v2 = new int[chunk], w = new int[chunk];
+			long[] keys = new long[chunk];
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			for (int r = 0; r < runs.length; r++) {
+				long first = (long) r * chunk;
+				int len = (int) Math.min(chunk, m - first);
+				for (int i = 0; i < len; i++) {
+					v1[i] = graph.v1(first + i);
+					v2[i] = graph.v2(first + i);
+					w[i] = graph.weight(first + i);
+					// weight in the high half, the index breaks ties so that
+					// the sort is stable
+					keys[i] = ((long) w[i] << 32) | i;
+				}
+				Arrays.sort(keys, 0, len);
+
+				runs[r] = File.createTempFile("mst", ".run", tmpDir);
+				RandomAccessFile raf = new RandomAccessFile(runs[r], "rw");
+				try {
+					FileChannel ch = raf.getChannel();
+					for (int i = 0; i < len; i++) {
+						int e = (int) keys[i];
+						if (buf.remaining() < GraphFile.EDGE_BYTES) {
+							drain(ch, buf);
+						}
+						buf.putInt(v1[e]).putInt(v2[e]).putInt(w[e]);
+					}
+					drain(ch, buf);
+				} finally {
+					raf.close();
+				}
+				report.bytesWritten += (long) len * GraphFile.EDGE_BYTES;
+			}
+			v1 = v2 = w = null;
+			keys = null;
+			report.edgesRead = m;
+			report.runs = runs.length;
+			report.bytesRead += m * GraphFile.EDGE_BYTES;
+			report.sortNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int readBuffer = (int) Math.max(MIN_READ_BUFFER,
+					Math.min(1 << 20, bufferBytes / Math.max(1, runs.length)) / GraphFile.EDGE_BYTES
+							* GraphFile.EDGE_BYTES);
+			PriorityQueue<Run> merge = new PriorityQueue<Run>(Math.max(1, runs.length), Run.ORDER);
+			Run[] readers = new Run[runs.length];
+
+			int n = graph.vertexCount();
+			String[] names = new String[n];
+			for (int v = 0; v < n; v++) {
+				names[v] = graph.name(v);
+			}
+			UnionFind uf = new UnionFind(n);
+			GraphFile.Writer out = new GraphFile.Writer(outFile, names);
+			try {
+				for (int r = 0; r < readers.length; r++) {
+					readers[r] = new Run(r, runs[r], readBuffer);
+					if (readers[r].advance()) {
+						merge.add(readers[r]);
+					}
+				}
+				while (!merge.isEmpty() && out.edgeCount() < n - 1) {
+					Run run = merge.poll();
+					if (uf.union(run.v1, run.v2)) {
+						out.add(run.v1, run.v2, run.weight);
+					}
+					if (run.advance()) {
+						merge.add(run);
+					}
+				}
+			} finally {
+				for (int r = 0; r < readers.length && readers[r] != null; r++) {
+					report.bytesRead += readers[r].bytesRead;
+					readers[r].close();
+				}
+				out.close();
+			}
+			report.arcs = out.edgeCount();
+			report.bytesWritten += out.bytesWritten();
+			report.mergeNanos = System.nanoTime() - start;
+		} finally {
+			for (int r = 0; r < runs.length; r++) {
+				if (runs[r] != null) {
+					runs[r].delete();
+				}
+			}
+		}
+		return report;
+	}
+
+	private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Sorted run of edge records being read during the merge
+	 */
+	private static class Run {
+		static final Comparator<Run> ORDER = new Comparator<Run>() {
+			public int compare(Run a, Run b) {
+				if (a.weight != b.weight) {
+					return a.weight < b.weight ? -1 : 1;
+				}
+				return a.index - b.index; // earlier run first, keeps input order
+			}
+		};
+
+		int index;
+		RandomAccessFile raf;
+		FileChannel ch;
+		ByteBuffer buf;
+		long bytesRead;
+		int v1, v2, weight;
+
+		Run(int index, File file, int bufferBytes) throws IOException {
+			this.index = index;
+			raf = new RandomAccessFile(file, "r");
+			ch = raf.getChannel();
+			buf = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+			buf.flip();
+		}
+
+		/**
+		 * Reads the next record, returns false at the end of the run
+		 */
+		boolean advance() throws IOException {
+			if (buf.remaining() < GraphFile.EDGE_BYTES) {
+				buf.compact();
+				while (buf.position() < GraphFile.EDGE_BYTES) {
+					int c = ch.read(buf);
+					if (c < 0) {
+						buf.flip();
+						return false;
+					}
+					bytesRead += c;
+				}
+				buf.flip();
+			}
+			v1 = buf.getInt();
+			v2 = buf.getInt();
+			weight = buf.getInt();
+			return true;
+		}
+
+		void close() throws IOException {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Union-find over vertex numbers, union by rank with path halving
+	 */
+	private static class UnionFind {
+		int[] parent;
+		byte[] rank;
+
+		UnionFind(int n) {
+			parent = new int[n];
+			rank = new byte[n];
+			for (int v = 0; v < n; v++) {
+				parent[v] = v;
+			}
+		}
+
+		int find(int v) {
+			while (parent[v] != v) {
+				parent[v] = parent[parent[v]];
+				v = parent[v];
+			}
+			return v;
+		}
+
+		/**
+		 * Joins the sets of two vertices, returns false if they were already
+		 * in the same set
+		 */
+		boolean union(int a, int b) {
+			a = find(a);
+			b = find(b);
+			if (a == b) {
+				return false;
+			}
+			if (rank[a] < rank[b]) {
+				parent[a] = b;
+			} else if (rank[a] > rank[b]) {
+				parent[b] = a;
+			} else {
+				parent[b] = a;
+				rank[a]++;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,372 @@
+package apps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * This class sorts an input file that is too large to be held in memory. The
+ * input is the same as for Radixsort.sort: the radix, then the items, separated
+ * by whitespace. The items are streamed in through a bounded buffer; every time
+ * the buffer fills up, its items are radix sorted and written to a temporary
+ * run file. The runs are then merged, k ways, into the output file, one item
+ * per line. All reading and writing goes through buffered NIO file channels.
+ *
+ * The order is the same as that of Radixsort.sort, including the order of
+ * items with equal values: runs hold consecutive stretches of the input, and
+ * ties in the merge go to the earlier run.
+ */
+public class ExternalRadixsort {
+
+	/**
+	 * Size of the I/O buffer of every file channel
+	 */
+	static final int IO_BUFFER = 1 << 16;
+
+	/**
+	 * Bytes of memory charged per buffered item, on top of its characters:
+	 * the string and its slots in the item and scratch arrays
+	 */
+	static final int ITEM_OVERHEAD = 64;
+
+	/**
+	 * Sizes, I/O volume and running time of an external sort
+	 */
+	public static class Report {
+		/**
+		 * Number of items sorted
+		 */
+		public long items;
+
+		/**
+		 * Number of sorted runs written to disk
+		 */
+		public int runs;
+
+		/**
+		 * Bytes read, from the input and the runs
+		 */
+		public long bytesRead;
+
+		/**
+		 * Bytes written, to the runs and the output
+		 */
+		public long bytesWritten;
+
+		/**
+		 * Time to form the runs, in nanoseconds
+		 */
+		public long runNanos;
+
+		/**
+		 * Time to merge the runs, in nanoseconds
+		 */
+		public long mergeNanos;
+
+		/**
+		 * Gives the I/O throughput, bytes read and written per second of
+		 * running time
+		 *
+		 * @return Throughput in MB/s
+		 */
+		public double megabytesPerSecond() {
+			return (bytesRead + bytesWritten) / ((runNanos + mergeNanos) / 1e9) / (1 << 20);
+		}
+
+		public String toString() {
+			return "items=" + items + " runs=" + runs + " read=" + bytesRead + "B written=" + bytesWritten
+					+ "B runs=" + runNanos / 1000000 + "ms merge=" + mergeNanos / 1000000 + "ms ("
+					+ (long) megabytesPerSecond() + " MB/s)";
+		}
+	}
+
+	/**
+	 * Sorts an input file into an output file
+	 *
+	 * @param inFile
+	 *            Name of input file: the radix, then the items to be sorted
+	 * @param outFile
+	 *            Name of output file, gets the sorted items one per line
+	 * @param bufferBytes
+	 *            Memory budget for the items that are sorted in memory at one
+	 *            time
+	 * @param tmpDir
+	 *            Directory for the temporary run files, null for the default
+	 *            temporary directory
+	 * @return Report of sizes, I/O volume and running time
+	 * @throws IOException
+	 *             If there is an error reading or writing, or the input is
+	 *             malformed
+	 */
+	public static Report sort(String inFile, String outFile, long bufferBytes, File tmpDir)
+			throws IOException {
+		Report report = new Report();
+		long start = System.nanoTime();
+		ArrayList<File> runs = new ArrayList<File>();
+		try {
+			Input in = new Input(inFile);
+			int radix;
+			try {
+				String r = in.next();
+				if (r == null) { // empty file, nothing to sort
+					new Output(outFile).close();
+					return report;
+				}
+				try {
+					radix = Integer.parseInt(r);
+				} catch (NumberFormatException e) {
+					throw new IOException(inFile + ":" + in.tokenLine + ": not a radix: " + r, e);
+				}
+				if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+					throw new IOException(inFile + ":" + in.tokenLine + ": radix out of range: " + r);
+				}
+
+				// form the runs
+				ParallelRadixsort sorter = new ParallelRadixsort();
+				String[] items = new String[1024];
+				boolean done = false;
+				while (!done) {
+					int n = 0;
+					long used = 0;
+					while (used < bufferBytes) {
+						String s = in.next();
+						if (s == null) {
+							done = true;
+							break;
+						}
+						if (!isNumber(s, radix)) {
+							throw new IOException(inFile + ":" + in.tokenLine + ": not a radix " + radix
+									+ " number: " + s);
+						}
+						if (n == items.length) {
+							items = Arrays.copyOf(items, 2 * n);
+						}
+						items[n++] = s;
+						used += 2 * s.length() + ITEM_OVERHEAD;
+					}
+					if (n == 0) {
+						break;
+					}
+					String[] run = n == items.length ? items : Arrays.copyOf(items, n);
+					sorter.sort(run, radix);
+					File f = File.createTempFile("radix", ".run", tmpDir);
+					runs.add(f);
+					Output out = new Output(f.getPath());
+					try {
+						for (int i = 0; i < n; i++) {
+							out.line(run[i]);
+						}
+					} finally {
+						out.close();
+						report.bytesWritten += out.bytes;
+					}
+					report.items += n;
+					Arrays.fill(items, 0, n, null);
+				}
+			} finally {
+				in.close();
+				report.bytesRead += in.bytes;
+			}
+			report.runs = runs.size();
+			report.runNanos = System.nanoTime() - start;
+
+			// merge the runs
+			start = System.nanoTime();
+			final int rdx = radix;
+			PriorityQueue<Run> merge = new PriorityQueue<Run>(Math.max(1, runs.size()), new Comparator<Run>() {
+				public int compare(Run a, Run b) {
+					int c = compareNumbers(a.item, b.item, rdx);
+					return c != 0 ? c : a.index - b.index;
+				}
+			});
+			Run[] readers = new Run[runs.size()];
+			Output out = new Output(outFile);
+			try {
+				for (int r = 0; r < readers.length; r++) {
+					readers[r] = new Run(r, new Input(runs.get(r).getPath()));
+					if (readers[r].advance()) {
+						merge.add(readers[r]);
+					}
+				}
+				while (!merge.isEmpty()) {
+					Run run = merge.poll();
+					out.line(run.item);
+					if (run.advance()) {
+						merge.add(run);
+					}
+				}
+			} finally {
+				for (int r = 0; r < readers.length && readers[r] != null; r++) {
+					readers[r].in.close();
+					report.bytesRead += readers[r].in.bytes;
+				}
+				out.close();
+				report.bytesWritten += out.bytes;
+			}
+			report.mergeNanos = System.nanoTime() - start;
+		} finally {
+			for (File f : runs) {
+				f.delete();
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Tells whether an item has only digits in a radix, so that the sorts and
+	 * compareNumbers can take it
+	 */
+	static boolean isNumber(String s, int radix) {
+		for (int i = 0; i < s.length(); i++) {
+			if (Character.digit(s.charAt(i), radix) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares two right aligned numbers in a radix: shorter numbers are
+	 * padded with leading 0's
+	 */
+	static int compareNumbers(String s, String t, int radix) {
+		int ls = s.length(), lt = t.length(), max = Math.max(ls, lt);
+		for (int i = max; i > 0; i--) {
+			int ds = i > ls ? 0 : Character.digit(s.charAt(ls - i), radix);
+			int dt = i > lt ? 0 : Character.digit(t.charAt(lt - i), radix);
+			if (ds != dt) {
+				return ds - dt;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sorted run being read during the merge
+	 */
+	private static class Run {
+		int index;
+		Input in;
+		String item;
+
+		Run(int index, Input in) {
+			this.index = index;
+			this.in = in;
+		}
+
+		boolean advance() throws IOException {
+			item = in.next();
+			return item != null;
+		}
+	}
+
+	/**
+	 * Whitespace separated ASCII tokens read from a file channel through a
+	 * fixed size buffer
+	 */
+	private static class Input {
+		RandomAccessFile raf;
+		FileChannel ch;
+		ByteBuffer buf = ByteBuffer.allocateDirect(IO_BUFFER);
+		StringBuilder sb = new StringBuilder();
+		long bytes;
+
+		/**
+		 * Line of the next character, and line of the last token returned
+		 */
+		int line = 1, tokenLine = 1;
+
+		Input(String file) throws IOException {
+			raf = new RandomAccessFile(file, "r");
+			ch = raf.getChannel();
+			buf.flip();
+		}
+
+		String next() throws IOException {
+			sb.setLength(0);
+			while (true) {
+				if (!buf.hasRemaining()) {
+					buf.clear();
+					int c = ch.read(buf);
+					buf.flip();
+					if (c < 0) {
+						return sb.length() > 0 ? sb.toString() : null;
+					}
+					bytes += c;
+				}
+				char c = (char) (buf.get() & 0xFF);
+				if (c <= ' ') {
+					if (c == '\n') {
+						line++;
+					}
+					if (sb.length() > 0) {
+						return sb.toString();
+					}
+				} else {
+					if (sb.length() == 0) {
+						tokenLine = line;
+					}
+					sb.append(c);
+				}
+			}
+		}
+
+		void close() throws IOException {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Lines of ASCII text written to a file channel through a fixed size
+	 * buffer
+	 */
+	private static class Output {
+		RandomAccessFile raf;
+		FileChannel ch;
+		ByteBuffer buf = ByteBuffer.allocateDirect(IO_BUFFER);
+		long bytes;
+
+		Output(String file) throws IOException {
+			raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			ch = raf.getChannel();
+		}
+
+		void line(String s) throws IOException {
+			int len = s.length();
+			for (int i = 0; i < len; i++) {
+				if (!buf.hasRemaining()) {
+					drain();
+				}
+				buf.put((byte) s.charAt(i));
+			}
+			if (!buf.hasRemaining()) {
+				drain();
+			}
+			buf.put((byte) '\n');
+			bytes += len + 1;
+		}
+
+		void drain() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+			buf.clear();
+		}
+
+		void close() throws IOException {
+			try {
+				drain();
+			} finally {
+				raf.close();
+			}
+		}
+	}
+}
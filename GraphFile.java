@@ -0,0 +1,474 @@
+package apps;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import structures.Vertex;
+
+/**
+ * This class reads a graph that is stored in a compact binary edge list file,
+ * through memory mapped buffers, so that the edges are never parsed or copied
+ * onto the heap. The file layout (all values little endian) is:
+ *
+ * <pre>
+ *  0  int   magic, "MSTG"
+ *  4  int   format version
+ *  8  int   number of vertices n
+ * 12  int   unused, 0
+ * 16  long  number of edges m
+ * 24  long  byte offset of the edge records
+ * 32  n vertex names, each an int byte length followed by UTF-8 bytes
+ *     m edge records of 12 bytes each: int v1, int v2, int weight
+ * </pre>
+ *
+ * Vertices are numbered in the order in which they are listed in the text
+ * input. Every undirected edge is stored once, as it appears in the text input.
+ */
+public class GraphFile {
+
+	/**
+	 * Magic number at the start of every graph file
+	 */
+	public static final int MAGIC = 0x4754534D;
+
+	/**
+	 * Current format version
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Number of bytes in an edge record
+	 */
+	public static final int EDGE_BYTES = 12;
+
+	/**
+	 * Number of bytes in the fixed header
+	 */
+	static final int HEADER_BYTES = 32;
+
+	/**
+	 * Max number of edge records in one mapped segment
+	 */
+	static final int SEGMENT_EDGES = Integer.MAX_VALUE / EDGE_BYTES;
+
+	/**
+	 * Vertex names, by vertex number
+	 */
+	private String[] names;
+
+	/**
+	 * Number of edges
+	 */
+	private long edgeCount;
+
+	/**
+	 * Mapped segments of edge records
+	 */
+	private ByteBuffer[] segments;
+
+	private GraphFile(String[] names, long edgeCount, ByteBuffer[] segments) {
+		this.names = names;
+		this.edgeCount = edgeCount;
+		this.segments = segments;
+	}
+
+	/**
+	 * Opens a binary graph file and maps its edge records into memory
+	 *
+	 * @param file
+	 *            Name of binary graph file
+	 * @return Graph file
+	 * @throws IOException
+	 *             If the file cannot be read, is not a graph file, or its
+	 *             header does not match the vertex names and the file size
+	 */
+	public static GraphFile open(String file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (ch.read(header, header.position()) < 0) {
+					throw new IOException(file + ": not a graph file");
+				}
+			}
+			header.flip();
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(file + ": not a graph file");
+			}
+			int n = header.getInt(8);
+			long m = header.getLong(16);
+			long edgeOffset = header.getLong(24);
+			long size = ch.size();
+			// every name takes at least its 4 byte length, and the edge
+			// records run from the edge offset to no further than the end
+			if (n < 0 || m < 0 || edgeOffset < HEADER_BYTES + 4L * n || edgeOffset > size
+					|| edgeOffset - HEADER_BYTES > Integer.MAX_VALUE || m > (size - edgeOffset) / EDGE_BYTES) {
+				throw new IOException(file + ": corrupt or truncated graph file header");
+			}
+
+			// vertex names, which must fill the space up to the edge records
+			MappedByteBuffer nameBuf = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+					edgeOffset - HEADER_BYTES);
+			nameBuf.order(ByteOrder.LITTLE_ENDIAN);
+			String[] names = new String[n];
+			byte[] bytes = new byte[64];
+			for (int v = 0; v < n; v++) {
+				int len = nameBuf.remaining() < 4 ? -1 : nameBuf.getInt();
+				if (len < 0 || len > nameBuf.remaining()) {
+					throw new IOException(file + ": corrupt name of vertex " + v);
+				}
+				if (len > bytes.length) {
+					bytes = new byte[Math.max(len, 2 * bytes.length)];
+				}
+				nameBuf.get(bytes, 0, len);
+				names[v] = new String(bytes, 0, len, StandardCharsets.UTF_8);
+			}
+			if (nameBuf.hasRemaining()) {
+				throw new IOException(file + ": edge offset does not follow the vertex names");
+			}
+
+			// edge records, in segments that hold whole records
+			int count = (int) ((m + SEGMENT_EDGES - 1) / SEGMENT_EDGES);
+			ByteBuffer[] segments = new ByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long first = (long) i * SEGMENT_EDGES;
+				long edges = Math.min(SEGMENT_EDGES, m - first);
+				segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, edgeOffset + first * EDGE_BYTES,
+						edges * EDGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return new GraphFile(names, m, segments);
+		} finally {
+			raf.close(); // mappings stay valid after the channel is closed
+		}
+	}
+
+	/**
+	 * Converts a graph in the text format read by structures.Graph into a
+	 * binary graph file. The text input is streamed, only the vertex names are
+	 * held in memory.
+	 *
+	 * @param textFile
+	 *            Name of text input file: number of vertices, then vertex
+	 *            names, then one "name name weight" triple per edge
+	 * @param binFile
+	 *            Name of binary graph file to be written
+	 * @return Number of edges written
+	 * @throws IOException
+	 *             If there is an error reading or writing, or the text input
+	 *             is malformed
+	 */
+	public static long convert(String textFile, String binFile) throws IOException {
+		Tokens in = new Tokens(new BufferedReader(new InputStreamReader(
+				new FileInputStream(textFile), StandardCharsets.UTF_8), 1 << 16));
+		Writer out = null;
+		try {
+			int n = in.nextInt(textFile);
+			if (n < 0) {
+				throw new IOException(textFile + ":" + in.tokenLine + ": negative number of vertices");
+			}
+			String[] names = new String[n];
+			HashMap<String,Integer> index = new HashMap<String,Integer>(2 * n);
+			for (int v = 0; v < n; v++) {
+				names[v] = in.next(textFile);
+				index.put(names[v], v);
+			}
+			out = new Writer(binFile, names);
+			String s;
+			while ((s = in.next()) != null) {
+				Integer v1 = index.get(s), v2 = index.get(in.next(textFile));
+				int weight = in.nextInt(textFile);
+				if (v1 == null || v2 == null) {
+					throw new IOException(textFile + ":" + in.tokenLine + ": unknown vertex in edge "
+							+ out.edgeCount());
+				}
+				out.add(v1, v2, weight);
+			}
+			return out.edgeCount();
+		} finally {
+			in.close();
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes a binary graph file. The vertex names are written up front, the
+	 * edge records are streamed through a direct buffer, and the header is
+	 * filled in when the writer is closed.
+	 */
+	public static class Writer {
+		private RandomAccessFile raf;
+		private FileChannel ch;
+		private ByteBuffer buf;
+		private int vertexCount;
+		private long edgeOffset, edgeCount;
+
+		/**
+		 * Creates a graph file with the given vertices and no edges yet
+		 *
+		 * @param file
+		 *            Name of binary graph file to be written
+		 * @param names
+		 *            Vertex names, by vertex number
+		 * @throws IOException
+		 *             If the file cannot be written
+		 */
+		public Writer(String file, String[] names) throws IOException {
+			raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			ch = raf.getChannel();
+			buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			vertexCount = names.length;
+			ch.position(HEADER_BYTES); // header is written on close
+			for (int v = 0; v < names.length; v++) {
+				byte[] bytes = names[v].getBytes(StandardCharsets.UTF_8);
+				if (buf.remaining() < 4 + bytes.length) {
+					drain();
+				}
+				if (buf.remaining() < 4 + bytes.length) { // name larger than the buffer
+					ByteBuffer big = ByteBuffer.allocate(4 + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+					big.putInt(bytes.length).put(bytes).flip();
+					while (big.hasRemaining()) {
+						ch.write(big);
+					}
+				} else {
+					buf.putInt(bytes.length).put(bytes);
+				}
+			}
+			drain();
+			edgeOffset = ch.position();
+			edgeCount = 0;
+		}
+
+		/**
+		 * Appends an edge record
+		 *
+		 * @param v1
+		 *            First vertex number
+		 * @param v2
+		 *            Second vertex number
+		 * @param weight
+		 *            Edge weight
+		 * @throws IOException
+		 *             If there is an error writing
+		 */
+		public void add(int v1, int v2, int weight) throws IOException {
+			if (buf.remaining() < EDGE_BYTES) {
+				drain();
+			}
+			buf.putInt(v1).putInt(v2).putInt(weight);
+			edgeCount++;
+		}
+
+		/**
+		 * Gives the number of edges written so far
+		 *
+		 * @return Number of edges
+		 */
+		public long edgeCount() {
+			return edgeCount;
+		}
+
+		/**
+		 * Gives the number of bytes written so far, including buffered bytes
+		 *
+		 * @return Number of bytes
+		 */
+		public long bytesWritten() {
+			return edgeOffset + edgeCount * EDGE_BYTES;
+		}
+
+		/**
+		 * Flushes the edge records, writes the header, and closes the file
+		 *
+		 * @throws IOException
+		 *             If there is an error writing
+		 */
+		public void close() throws IOException {
+			try {
+				drain();
+				buf.putInt(MAGIC).putInt(VERSION).putInt(vertexCount).putInt(0).putLong(edgeCount)
+						.putLong(edgeOffset);
+				buf.flip();
+				while (buf.hasRemaining()) {
+					ch.write(buf, buf.position());
+				}
+			} finally {
+				raf.close();
+			}
+		}
+
+		private void drain() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+			buf.clear();
+		}
+	}
+
+	/**
+	 * Gives the number of vertices
+	 *
+	 * @return Number of vertices
+	 */
+	public int vertexCount() {
+		return names.length;
+	}
+
+	/**
+	 * Gives the number of edges
+	 *
+	 * @return Number of edges
+	 */
+	public long edgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Gives the name of a vertex
+	 *
+	 * @param v
+	 *            Vertex number
+	 * @return Vertex name
+	 */
+	public String name(int v) {
+		return names[v];
+	}
+
+	/**
+	 * Gives the first vertex of an edge
+	 *
+	 * @param e
+	 *            Edge number
+	 * @return Vertex number
+	 */
+	public int v1(long e) {
+		return segments[(int) (e / SEGMENT_EDGES)].getInt((int) (e % SEGMENT_EDGES) * EDGE_BYTES);
+	}
+
+	/**
+	 * Gives the second vertex of an edge
+	 *
+	 * @param e
+	 *            Edge number
+	 * @return Vertex number
+	 */
+	public int v2(long e) {
+		return segments[(int) (e / SEGMENT_EDGES)].getInt((int) (e % SEGMENT_EDGES) * EDGE_BYTES + 4);
+	}
+
+	/**
+	 * Gives the weight of an edge
+	 *
+	 * @param e
+	 *            Edge number
+	 * @return Edge weight
+	 */
+	public int weight(long e) {
+		return segments[(int) (e / SEGMENT_EDGES)].getInt((int) (e % SEGMENT_EDGES) * EDGE_BYTES + 8);
+	}
+
+	/**
+	 * Makes a vertex object for every vertex, without neighbor lists. These are
+	 * the vertices referred to by the arcs of an MST found from this file.
+	 *
+	 * @return Vertices, by vertex number
+	 */
+	public Vertex[] vertices() {
+		Vertex[] vertices = new Vertex[names.length];
+		for (int v = 0; v < vertices.length; v++) {
+			vertices[v] = new Vertex(names[v]);
+		}
+		return vertices;
+	}
+
+	/**
+	 * Whitespace separated tokens of a text input, read without Scanner
+	 */
+	private static class Tokens {
+		private BufferedReader br;
+		private char[] buf = new char[1 << 16];
+		private int pos = 0, len = 0;
+		private StringBuilder sb = new StringBuilder();
+
+		/**
+		 * Line of the next character, and line of the last token returned
+		 */
+		private int line = 1, tokenLine = 1;
+
+		Tokens(BufferedReader br) {
+			this.br = br;
+		}
+
+		/**
+		 * Returns the next token, or null at end of input
+		 */
+		String next() throws IOException {
+			sb.setLength(0);
+			while (true) {
+				if (pos == len) {
+					len = br.read(buf, 0, buf.length);
+					pos = 0;
+					if (len <= 0) {
+						len = 0;
+						return sb.length() > 0 ? sb.toString() : null;
+					}
+				}
+				char c = buf[pos++];
+				if (Character.isWhitespace(c)) {
+					if (c == '\n') {
+						line++;
+					}
+					if (sb.length() > 0) {
+						return sb.toString();
+					}
+				} else {
+					if (sb.length() == 0) {
+						tokenLine = line;
+					}
+					sb.append(c);
+				}
+			}
+		}
+
+		/**
+		 * Returns the next token, which must be there
+		 */
+		String next(String file) throws IOException {
+			String s = next();
+			if (s == null) {
+				throw new IOException(file + ": unexpected end of input");
+			}
+			return s;
+		}
+
+		/**
+		 * Returns the next token as an int, which must be there
+		 */
+		int nextInt(String file) throws IOException {
+			String s = next(file);
+			try {
+				return Integer.parseInt(s);
+			} catch (NumberFormatException e) {
+				throw new IOException(file + ":" + tokenLine + ": not a number: " + s, e);
+			}
+		}
+
+		void close() throws IOException {
+			br.close();
+		}
+	}
+
+}
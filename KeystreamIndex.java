@@ -0,0 +1,203 @@
+package solitaire;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class is an index of checkpoints in a Solitaire keystream, so that the
+ * keystream can be picked up anywhere without generating it from the start.
+ * The state of the deck is saved, in one byte per card (28 for the deck of
+ * Solitaire), before every key whose offset is a multiple of the checkpoint
+ * interval. A seek goes to the last checkpoint
+ * at or before the offset, and generates at most interval - 1 keys from there.
+ *
+ * The index is made once, when the message is encrypted, and can be kept with
+ * the encrypted message as a plain byte array. Then any part of the message
+ * can be decrypted on its own, and a long message can be decrypted in chunks
+ * that run at the same time, one per checkpoint interval.
+ */
+public class KeystreamIndex {
+
+	/**
+	 * Number of bytes in the state of the deck, its number of cards
+	 */
+	private int state;
+
+	/**
+	 * Number of keys between checkpoints
+	 */
+	private int interval;
+
+	/**
+	 * Saved deck states, checkpoint c at [c*state, (c+1)*state), for the key at
+	 * offset c*interval
+	 */
+	private byte[] states;
+
+	/**
+	 * Makes the index of a keystream, by generating it from a deck
+	 *
+	 * @param deck
+	 *            Deck in its state for the first key, left as it is
+	 * @param length
+	 *            Number of keys to index, such as the length of a message
+	 * @param interval
+	 *            Number of keys between checkpoints
+	 * @throws IllegalArgumentException
+	 *             If the length is negative or the interval is not positive
+	 */
+	public KeystreamIndex(ArrayDeck deck, long length, int interval) throws IllegalArgumentException {
+		if (length < 0 || interval <= 0) {
+			throw new IllegalArgumentException("Bad length " + length + " or interval " + interval);
+		}
+		this.interval = interval;
+		state = deck.size();
+		long checkpoints = length / interval + 1;
+		if (checkpoints * state > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many checkpoints: " + checkpoints);
+		}
+		states = new byte[(int) checkpoints * state];
+		deck = deck.copy();
+		for (int c = 0; c < checkpoints; c++) {
+			if (c > 0) {
+				deck.skip(interval);
+			}
+			deck.snapshot(states, c * state);
+		}
+	}
+
+	/**
+	 * Initializes this index with checkpoints of a 28 card deck saved by
+	 * checkpoints()
+	 *
+	 * @param states
+	 *            Saved checkpoints
+	 * @param interval
+	 *            Number of keys between checkpoints
+	 * @throws IllegalArgumentException
+	 *             If there are no whole checkpoints, or the interval is not
+	 *             positive
+	 */
+	public KeystreamIndex(byte[] states, int interval) throws IllegalArgumentException {
+		this(states, interval, ArrayDeck.SIZE);
+	}
+
+	/**
+	 * Initializes this index with checkpoints saved by checkpoints()
+	 *
+	 * @param states
+	 *            Saved checkpoints
+	 * @param interval
+	 *            Number of keys between checkpoints
+	 * @param size
+	 *            Number of cards in the deck
+	 * @throws IllegalArgumentException
+	 *             If there are no whole checkpoints, or the interval is not
+	 *             positive
+	 */
+	public KeystreamIndex(byte[] states, int interval, int size) throws IllegalArgumentException {
+		if (size <= 0 || states.length == 0 || states.length % size != 0 || interval <= 0) {
+			throw new IllegalArgumentException("Bad checkpoints or interval " + interval);
+		}
+		this.interval = interval;
+		this.state = size;
+		this.states = states.clone();
+	}
+
+	/**
+	 * Gives the checkpoints, to be saved with the encrypted message
+	 *
+	 * @return Deck states, one byte per card each
+	 */
+	public byte[] checkpoints() {
+		return states.clone();
+	}
+
+	/**
+	 * Gives the number of keys between checkpoints
+	 *
+	 * @return Interval
+	 */
+	public int interval() {
+		return interval;
+	}
+
+	/**
+	 * Makes a deck whose next key is the key at an offset in the keystream
+	 *
+	 * @param offset
+	 *            Offset of the key, 0 for the first
+	 * @return New deck, positioned at the offset
+	 * @throws IllegalArgumentException
+	 *             If the offset is negative
+	 */
+	public ArrayDeck seek(long offset) throws IllegalArgumentException {
+		if (offset < 0) {
+			throw new IllegalArgumentException("Negative offset: " + offset);
+		}
+		long c = Math.min(offset / interval, states.length / state - 1);
+		ArrayDeck deck = ArrayDeck.restore(states, (int) c * state, state);
+		deck.skip(offset - c * interval);
+		return deck;
+	}
+
+	/**
+	 * Decrypts a part of an encrypted message, as Solitaire.decrypt would when
+	 * it got to that part
+	 *
+	 * @param part
+	 *            Upper case letters, taken from the encrypted message
+	 * @param offset
+	 *            Offset of the first letter of the part in the message
+	 * @return Decrypted part
+	 * @throws IllegalArgumentException
+	 *             If the offset is negative
+	 */
+	public String decrypt(String part, long offset) throws IllegalArgumentException {
+		return Solitaire.cipher(seek(offset), part, false);
+	}
+
+	/**
+	 * Decrypts a whole encrypted message in chunks of one checkpoint interval
+	 * each, which run at the same time in an executor
+	 *
+	 * @param message
+	 *            Encrypted message, upper case letters
+	 * @param pool
+	 *            Executor that runs the chunks
+	 * @return Decrypted message, the same as that of Solitaire.decrypt
+	 * @throws InterruptedException
+	 *             If the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             If a chunk fails
+	 */
+	public String decrypt(final String message, ExecutorService pool)
+			throws InterruptedException, ExecutionException {
+		int len = message.length();
+		ArrayList<Future<String>> chunks = new ArrayList<Future<String>>();
+		for (int i = 0; i < len; i += interval) {
+			final int start = i, end = (int) Math.min((long) i + interval, len);
+			chunks.add(pool.submit(new Callable<String>() {
+				public String call() {
+					return decrypt(message.substring(start, end), start);
+				}
+			}));
+		}
+		StringBuilder sb = new StringBuilder(len);
+		try {
+			for (Future<String> f : chunks) {
+				sb.append(f.get());
+			}
+		} finally {
+			if (sb.length() < len) { // failed, drop the other chunks
+				for (Future<String> f : chunks) {
+					f.cancel(true);
+				}
+			}
+		}
+		return sb.toString();
+	}
+}
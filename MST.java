@@ -1,10 +1,33 @@
 package apps;
 
 import structures.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.NoSuchElementException;
 
 public class MST {
 	
+	/**
+	 * Metrics that execute and executeMeldable report to, null if off
+	 */
+	private static MSTMetrics metrics = null;
+	
+	/**
+	 * Turns on instrumentation of execute and executeMeldable, or turns it off
+	 * 
+	 * @param m Metrics object to which counters and timers are added, null to turn off
+	 */
+	public static void setMetrics(MSTMetrics m) {
+		metrics = m;
+	}
+	
 	/**
 	 * Initializes the algorithm by building single-vertex partial trees
 	 * 
@@ -33,37 +56,552 @@ public class MST {
 	 * @return Array list of all arcs that are in the MST - sequence of arcs is irrelevant
 	 */
 	public static ArrayList<PartialTree.Arc> execute(PartialTreeList ptlist) {
+		MSTMetrics m = metrics;
+		MSTMetrics.Counts c = m != null ? new MSTMetrics.Counts() : null;
+		long start = m != null ? System.nanoTime() : 0;
 		ArrayList<PartialTree.Arc> fin = new ArrayList<PartialTree.Arc>();
 		while (ptlist.size()>1){
+			if (m != null) {
+				m.treeCount = ptlist.size();
+			}
+			long t = m != null ? System.nanoTime() : 0;
 			PartialTree PTX = ptlist.remove();
 			PartialTree.Arc a = PTX.getArcs().deleteMin();
 			Vertex v2 = a.v2;
-			while (containsVertex(PTX, v2)){
+			int deletes = 1;
+			while (containsVertex(PTX, v2, c)){
 //				System.out.println(PTX.getArcs().toString());
 				a = PTX.getArcs().deleteMin();
 				v2 = a.v2;
+				deletes++;
 			}
 			fin.add(a);
-			PartialTree PTY = ptlist.removeTreeContaining(v2);
+			if (m != null) {
+				long now = System.nanoTime();
+				c.selectNanos += now - t;
+				c.deleteMins += deletes;
+				c.staleArcs += deletes - 1;
+				t = now;
+			}
+			PartialTree PTY = ptlist.removeTreeContaining(v2, c);
+			if (m != null) {
+				long now = System.nanoTime();
+				c.removeTreeNanos += now - t;
+				t = now;
+			}
 			PTX.merge(PTY);
+			if (m != null) {
+				c.mergeNanos += System.nanoTime() - t;
+				c.merges++;
+			}
 			ptlist.append(PTX);
 		}
+		if (m != null) {
+			m.treeCount = ptlist.size();
+			m.add(c, System.nanoTime() - start);
+		}
+
+		return fin;
+	}
+	
+	/**
+	 * Number of consecutive stale arcs (arcs leading back into the same tree)
+	 * after which executeMeldable prunes the whole arc queue of the tree
+	 */
+	private static final int PRUNE_RUN = 8;
 
+	/**
+	 * Executes the algorithm on a graph, with the arcs of every partial tree
+	 * kept in a pairing heap. When two trees are merged, their arc queues are
+	 * melded in O(1) time. Trees are processed in the same round-robin order as
+	 * execute, but vertex membership is tracked with a union-find array instead
+	 * of walking parent links. Arcs that lead back into the same tree are
+	 * discarded as they come up at deleteMin, and if a long run of them shows
+	 * up, all such arcs are pruned from the queue in one pass.
+	 * 
+	 * @param graph Graph for which the MST is to be found
+	 * @return Array list of all arcs that are in the MST - sequence of arcs is irrelevant
+	 */
+	public static ArrayList<PartialTree.Arc> executeMeldable(Graph graph) {
+		Vertex[] vertices = graph.vertices;
+		int n = vertices.length;
+		IdentityHashMap<Vertex,Integer> index = new IdentityHashMap<Vertex,Integer>(2*n);
+		for (int i = 0; i < n; i++) {
+			index.put(vertices[i], i);
+		}
+		PairingHeap<PartialTree.Arc>[] arcs = newArcQueues(n);
+		for (int i = 0; i < n; i++) {
+			for (Vertex.Neighbor ptr = vertices[i].neighbors; ptr != null; ptr = ptr.next) {
+				arcs[i].insert(new PartialTree.Arc(vertices[i], ptr.vertex, ptr.weight));
+			}
+		}
+		return executeMeldable(n, new HeapArcQueues(index, arcs));
+	}
+	
+	/**
+	 * Executes the algorithm as executeMeldable(Graph) does, on a graph that is
+	 * read from a memory mapped binary graph file. There is no text parsing and
+	 * no structures.Graph is built. The arc queues are pairing heaps of arc
+	 * numbers, and the weight and ends of an arc are read from its edge record
+	 * in the mapped file whenever they are needed, so no object is made per
+	 * arc: only the n-1 arcs of the result are made into PartialTree.Arc
+	 * objects. These refer to the vertices made by the graph file's vertices
+	 * method.
+	 * 
+	 * The heap links of the arcs take 16 bytes per edge. They are kept off the
+	 * heap, in a temporary file in the default temporary directory that is
+	 * mapped into memory and deleted when it has been mapped, so the Java heap
+	 * only needs O(n) space, and the links can be paged out like the edge
+	 * records when the graph is larger than physical memory.
+	 * 
+	 * @param graph Binary graph file for which the MST is to be found
+	 * @return Array list of all arcs that are in the MST - sequence of arcs is irrelevant
+	 * @throws IllegalArgumentException If the graph has more than 2^30-1 edges,
+	 *         whose arcs cannot be numbered with ints
+	 * @throws IOException If the temporary file of the heap links cannot be made
+	 */
+	public static ArrayList<PartialTree.Arc> executeMeldable(GraphFile graph)
+	throws IllegalArgumentException, IOException {
+		return executeMeldable(graph.vertexCount(), new FileArcQueues(graph));
+	}
+	
+	private static PairingHeap<PartialTree.Arc>[] newArcQueues(int n) {
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		PairingHeap<PartialTree.Arc>[] arcs = (PairingHeap<PartialTree.Arc>[]) new PairingHeap[n];
+		for (int i = 0; i < n; i++) {
+			arcs[i] = new PairingHeap<PartialTree.Arc>();
+		}
+		return arcs;
+	}
+	
+	/**
+	 * Arc queues of the partial trees of executeMeldable, kept under the root
+	 * vertex index of every tree
+	 */
+	private static abstract class ArcQueues {
+		/**
+		 * Removes the minimum arc from the queue of a tree, and makes it the
+		 * current arc
+		 * 
+		 * @return Index of the second vertex of the arc
+		 * @throws NoSuchElementException If the queue is empty
+		 */
+		abstract int deleteMin(int tree) throws NoSuchElementException;
+		
+		/**
+		 * Gives the arc last removed by deleteMin
+		 */
+		abstract PartialTree.Arc arc();
+		
+		/**
+		 * Removes from the queue of a tree all arcs whose second vertex is in
+		 * the tree
+		 * 
+		 * @return Number of arcs removed
+		 */
+		abstract int prune(int tree, int[] parent);
+		
+		/**
+		 * Melds the queues of two trees, and keeps the result under the root
+		 * of the merged tree, which is one of the two
+		 */
+		abstract void meld(int x, int y, int root);
+	}
+	
+	/**
+	 * Arc queues that are pairing heaps of PartialTree.Arc objects
+	 */
+	private static class HeapArcQueues extends ArcQueues {
+		PairingHeap<PartialTree.Arc>[] arcs;
+		IdentityHashMap<Vertex,Integer> index;
+		StaleArcs stale;
+		PartialTree.Arc arc;
+		
+		HeapArcQueues(IdentityHashMap<Vertex,Integer> index, PairingHeap<PartialTree.Arc>[] arcs) {
+			this.index = index;
+			this.arcs = arcs;
+			stale = new StaleArcs(index);
+		}
+		
+		int deleteMin(int tree) throws NoSuchElementException {
+			arc = arcs[tree].deleteMin();
+			return index.get(arc.v2);
+		}
+		
+		PartialTree.Arc arc() {
+			return arc;
+		}
+		
+		int prune(int tree, int[] parent) {
+			stale.parent = parent;
+			stale.tree = tree;
+			return arcs[tree].prune(stale);
+		}
+		
+		void meld(int x, int y, int root) {
+			PairingHeap<PartialTree.Arc> heap = arcs[x];
+			heap.merge(arcs[y]);
+			arcs[x] = arcs[y] = null;
+			arcs[root] = heap;
+		}
+	}
+	
+	/**
+	 * Arc queues of a binary graph file. Arc 2e goes from the first to the
+	 * second vertex of edge e, and arc 2e+1 goes back. The queues are pairing
+	 * heaps of arc numbers, in leftmost child - right sibling form, with the
+	 * same linking and two-pass combining as structures.PairingHeap. The root
+	 * of every queue is kept in an int array, the child and sibling links of
+	 * the arcs in ArcLinks.
+	 */
+	private static class FileArcQueues extends ArcQueues {
+		private static final int NIL = ArcLinks.NIL;
+		GraphFile graph;
+		Vertex[] vertices;
+		int[] root;
+		ArcLinks links;
+		int arc;
+		
+		FileArcQueues(GraphFile graph) throws IllegalArgumentException, IOException {
+			long m = graph.edgeCount();
+			if (m > Integer.MAX_VALUE / 2) {
+				throw new IllegalArgumentException("Too many edges to number their arcs with ints: " + m
+						+ ", at most " + Integer.MAX_VALUE / 2);
+			}
+			this.graph = graph;
+			vertices = graph.vertices();
+			root = new int[vertices.length];
+			Arrays.fill(root, NIL);
+			links = new ArcLinks(2 * m);
+			for (int e = 0; e < m; e++) {
+				int v1 = graph.v1(e), v2 = graph.v2(e);
+				root[v1] = link(root[v1], 2 * e);
+				root[v2] = link(root[v2], 2 * e + 1);
+			}
+		}
+		
+		int deleteMin(int tree) throws NoSuchElementException {
+			int r = root[tree];
+			if (r == NIL) {
+				throw new NoSuchElementException();
+			}
+			root[tree] = combine(links.child(r));
+			links.setChild(r, NIL);
+			arc = r;
+			return to(r);
+		}
+		
+		PartialTree.Arc arc() {
+			return new PartialTree.Arc(vertices[from(arc)], vertices[to(arc)], weight(arc));
+		}
+		
+		int prune(int tree, int[] parent) {
+			int work = root[tree], survivors = NIL, removed = 0;
+			while (work != NIL) {
+				int x = work;
+				work = links.sibling(x);
+				// move the children of x to the work list
+				for (int c = links.child(x); c != NIL;) {
+					int next = links.sibling(c);
+					links.setSibling(c, work);
+					work = c;
+					c = next;
+				}
+				links.setChild(x, NIL);
+				if (find(parent, to(x)) == tree) {
+					removed++;
+				} else {
+					links.setSibling(x, survivors);
+					survivors = x;
+				}
+			}
+			root[tree] = combine(survivors);
+			return removed;
+		}
+		
+		void meld(int x, int y, int root) {
+			int heap = link(this.root[x], this.root[y]);
+			this.root[x] = this.root[y] = NIL;
+			this.root[root] = heap;
+		}
+		
+		private int from(int a) {
+			return (a & 1) == 0 ? graph.v1(a >>> 1) : graph.v2(a >>> 1);
+		}
+		
+		private int to(int a) {
+			return (a & 1) == 0 ? graph.v2(a >>> 1) : graph.v1(a >>> 1);
+		}
+		
+		private int weight(int a) {
+			return graph.weight(a >>> 1);
+		}
+		
+		/**
+		 * Links two heap trees, the one with the larger root becomes the
+		 * leftmost child of the other. Neither root may have a sibling.
+		 */
+		private int link(int a, int b) {
+			if (a == NIL) {
+				return b;
+			}
+			if (b == NIL) {
+				return a;
+			}
+			if (weight(b) < weight(a)) {
+				int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			links.setSibling(b, links.child(a));
+			links.setChild(a, b);
+			return a;
+		}
+		
+		/**
+		 * Combines a sibling list of heap trees into a single tree, linking
+		 * pairs left to right, then the results right to left
+		 */
+		private int combine(int first) {
+			if (first == NIL) {
+				return NIL;
+			}
+			// first pass, the linked pairs are chained in reverse order
+			int pairs = NIL;
+			while (first != NIL) {
+				int a = first, b = links.sibling(a);
+				if (b == NIL) {
+					links.setSibling(a, pairs);
+					pairs = a;
+					break;
+				}
+				first = links.sibling(b);
+				links.setSibling(a, NIL);
+				links.setSibling(b, NIL);
+				int l = link(a, b);
+				links.setSibling(l, pairs);
+				pairs = l;
+			}
+			// second pass
+			int ret = pairs;
+			pairs = links.sibling(pairs);
+			links.setSibling(ret, NIL);
+			while (pairs != NIL) {
+				int next = links.sibling(pairs);
+				links.setSibling(pairs, NIL);
+				ret = link(ret, pairs);
+				pairs = next;
+			}
+			return ret;
+		}
+	}
+	
+	/**
+	 * Child and sibling links of the arcs of FileArcQueues, 8 bytes per arc,
+	 * in a temporary file that is mapped into memory in segments. A link is
+	 * stored plus one, so that the zeros of a new file read as NIL.
+	 */
+	private static class ArcLinks {
+		static final int NIL = -1;
+		
+		/**
+		 * log2 of the number of arcs in a mapped segment, 2^27 arcs take 1 GB
+		 */
+		private static final int SEGMENT_SHIFT = 27;
+		private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+		
+		private ByteBuffer[] segments;
+		
+		ArcLinks(long arcs) throws IOException {
+			File file = File.createTempFile("mst", ".links");
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(8 * arcs);
+				FileChannel ch = raf.getChannel();
+				segments = new ByteBuffer[(int) ((arcs + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+				for (int i = 0; i < segments.length; i++) {
+					long first = (long) i << SEGMENT_SHIFT;
+					long count = Math.min(1L << SEGMENT_SHIFT, arcs - first);
+					segments[i] = ch.map(FileChannel.MapMode.READ_WRITE, 8 * first, 8 * count)
+							.order(ByteOrder.nativeOrder());
+				}
+			} finally {
+				raf.close(); // mappings stay valid after the channel is closed
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		}
+		
+		int child(int a) {
+			return segments[a >>> SEGMENT_SHIFT].getInt((a & SEGMENT_MASK) << 3) - 1;
+		}
+		
+		int sibling(int a) {
+			return segments[a >>> SEGMENT_SHIFT].getInt(((a & SEGMENT_MASK) << 3) + 4) - 1;
+		}
+		
+		void setChild(int a, int c) {
+			segments[a >>> SEGMENT_SHIFT].putInt((a & SEGMENT_MASK) << 3, c + 1);
+		}
+		
+		void setSibling(int a, int s) {
+			segments[a >>> SEGMENT_SHIFT].putInt(((a & SEGMENT_MASK) << 3) + 4, s + 1);
+		}
+	}
+	
+	private static ArrayList<PartialTree.Arc> executeMeldable(int n, ArcQueues arcs) {
+		
+		// union-find over vertex indexes, a tree is named by its root index
+		int[] parent = new int[n], size = new int[n];
+		
+		// circular doubly linked list of trees, in the order of PartialTreeList
+		int[] next = new int[n], prev = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+			next[i] = (i + 1) % n;
+			prev[i] = (i + n - 1) % n;
+		}
+		
+		ArrayList<PartialTree.Arc> fin = new ArrayList<PartialTree.Arc>();
+		MSTMetrics m = metrics;
+		MSTMetrics.Counts c = m != null ? new MSTMetrics.Counts() : null;
+		long start = m != null ? System.nanoTime() : 0;
+		int front = 0, trees = n;
+		while (trees > 1) {
+			if (m != null) {
+				m.treeCount = trees;
+			}
+			long t = m != null ? System.nanoTime() : 0;
+			int x = front;
+			front = unlink(x, next, prev);
+			trees--;
+			
+			int y = find(parent, arcs.deleteMin(x));
+			int run = 0;
+			while (y == x) {
+				if (++run == PRUNE_RUN) {
+					int pruned = arcs.prune(x, parent);
+					if (m != null) {
+						c.prunes++;
+						c.prunedArcs += pruned;
+					}
+				}
+				y = find(parent, arcs.deleteMin(x));
+			}
+			fin.add(arcs.arc());
+			if (m != null) {
+				long now = System.nanoTime();
+				c.selectNanos += now - t;
+				c.deleteMins += run + 1;
+				c.staleArcs += run;
+				c.membershipChecks += run + 1;
+				t = now;
+			}
+			
+			if (y == front) {
+				front = next[y];
+			}
+			unlink(y, next, prev);
+			trees--;
+			
+			// union by size, then meld the arc queues - the surviving root
+			// takes over the melded queue
+			int r = x, s = y;
+			if (size[y] > size[x]) {
+				r = y;
+				s = x;
+			}
+			parent[s] = r;
+			size[r] += size[s];
+			arcs.meld(x, y, r);
+			
+			// append the merged tree at the rear
+			if (trees == 0) {
+				next[r] = r;
+				prev[r] = r;
+				front = r;
+			} else {
+				int rear = prev[front];
+				next[rear] = r;
+				prev[r] = rear;
+				next[r] = front;
+				prev[front] = r;
+			}
+			trees++;
+			if (m != null) {
+				c.mergeNanos += System.nanoTime() - t;
+				c.merges++;
+			}
+		}
+		if (m != null) {
+			m.treeCount = trees;
+			m.add(c, System.nanoTime() - start);
+		}
+		
 		return fin;
 	}
 	
-    private static boolean containsVertex(PartialTree pt, Vertex v){
+	/**
+	 * Removes a tree from the circular list of trees
+	 * 
+	 * @return The tree after the removed one
+	 */
+	private static int unlink(int t, int[] next, int[] prev) {
+		next[prev[t]] = next[t];
+		prev[next[t]] = prev[t];
+		return next[t];
+	}
+	
+	/**
+	 * Finds the root of a vertex in the union-find array, with path halving
+	 */
+	private static int find(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+	
+	/**
+	 * Matches the arcs whose second vertex is in a given tree
+	 */
+	private static class StaleArcs implements PairingHeap.Filter<PartialTree.Arc> {
+		IdentityHashMap<Vertex,Integer> index;
+		int[] parent;
+		int tree;
+		
+		StaleArcs(IdentityHashMap<Vertex,Integer> index) {
+			this.index = index;
+		}
+		
+		public boolean matches(PartialTree.Arc a) {
+			return find(parent, index.get(a.v2)) == tree;
+		}
+	}
+	
+    private static boolean containsVertex(PartialTree pt, Vertex v, MSTMetrics.Counts c){
     	
+    	if (c != null)
+    		c.membershipChecks++;
     	Vertex ptr = pt.getRoot();
     	if (ptr.equals(v))
     		return true;
+    	int steps = 0;
+    	boolean found = false;
     	while (!v.equals(v.parent)){
-    		if (v.parent.equals(ptr))
-    			return true;
+    		steps++;
+    		if (v.parent.equals(ptr)){
+    			found = true;
+    			break;
+    		}
     		v = v.parent;
     	}
+    	if (c != null)
+    		c.membershipSteps += steps;
     	
-    	return false;
+    	return found;
     }
 }
-    
\ No newline at end of file
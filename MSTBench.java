@@ -0,0 +1,471 @@
+package apps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import structures.Bench;
+import structures.Graph;
+import structures.Vertex;
+
+/**
+ * This class times the MST algorithms on random connected graphs from a
+ * seeded generator. It is run as
+ *
+ * <pre>
+ * java apps.MSTBench mode [vertices] [seed]
+ * </pre>
+ *
+ * where mode is dense, for MST.execute against MST.executeMeldable on a graph
+ * with an edge between about half of all pairs of vertices, file, for the load
+ * time and memory of a binary GraphFile and executeMeldable(GraphFile), or
+ * text, for the same graph read into a structures.Graph and run through
+ * executeMeldable(Graph), or external, for ExternalMST on a binary graph file
+ * ten times the size of the max heap, or dynamic, for the updates of
+ * DynamicMST against a rebuild of the MST. The file and text modes report the peak heap use of
+ * each phase and the resident set size of the process, and should each be
+ * run in a JVM of their own, since the resident set does not shrink.
+ */
+public class MSTBench {
+
+	/**
+	 * Times MST.initialize and MST.execute against MST.executeMeldable on a
+	 * dense graph. The graph is read again from its text file in an untimed
+	 * setup before every run, because execute changes the parent links of the
+	 * vertices.
+	 *
+	 * @param n
+	 *            Number of vertices
+	 * @param seed
+	 *            Seed of the graph
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void dense(int n, long seed) throws IOException {
+		final File file = File.createTempFile("mst", ".txt");
+		try {
+			long m = (long) n * (n - 1) / 4;
+			writeGraph(file, n, m, 1000000, seed);
+			System.out.println(String.format("%,d vertices, %,d edges", n, m));
+			final Graph[] graph = new Graph[1];
+			final long[] weight = new long[2];
+			report("MST.initialize + execute", m, Bench.time(new Bench.Task() {
+				public void setup() {
+					graph[0] = load(file);
+				}
+
+				public long run() {
+					weight[0] = totalWeight(MST.execute(MST.initialize(graph[0])));
+					return weight[0];
+				}
+			}, 1, 5));
+			report("MST.executeMeldable(Graph)", m, Bench.time(new Bench.Task() {
+				public void setup() {
+					graph[0] = load(file);
+				}
+
+				public long run() {
+					weight[1] = totalWeight(MST.executeMeldable(graph[0]));
+					return weight[1];
+				}
+			}, 1, 5));
+			if (weight[0] != weight[1]) {
+				throw new IllegalStateException("MST weights differ: " + weight[0] + " and " + weight[1]);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Times GraphFile.open and MST.executeMeldable(GraphFile) on a random
+	 * connected graph with 8 edges per vertex, and reports their memory use.
+	 * The graph is written as text and converted to a binary graph file, which
+	 * is timed once.
+	 *
+	 * @param n
+	 *            Number of vertices
+	 * @param seed
+	 *            Seed of the graph
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph files
+	 */
+	static void file(int n, long seed) throws IOException {
+		File text = File.createTempFile("mst", ".txt"), bin = File.createTempFile("mst", ".bin");
+		try {
+			final long m = 8L * n;
+			writeGraph(text, n, m, 1000000, seed);
+			long t0 = System.nanoTime();
+			GraphFile.convert(text.getPath(), bin.getPath());
+			System.out.println(String.format("%,d vertices, %,d edges, %,d byte graph file, converted in %.3f ms", n,
+					m, bin.length(), (System.nanoTime() - t0) / 1e6));
+			text.delete();
+
+			final String path = bin.getPath();
+			final GraphFile[] graph = new GraphFile[1];
+			resetPeakHeap();
+			report("GraphFile.open", m, Bench.time(new Bench.Task() {
+				public long run() {
+					graph[0] = open(path);
+					return graph[0].edgeCount();
+				}
+			}, 1, 5));
+			memory();
+			resetPeakHeap();
+			report("MST.executeMeldable(GraphFile)", m, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						return totalWeight(MST.executeMeldable(graph[0]));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+			memory();
+		} finally {
+			text.delete();
+			bin.delete();
+		}
+	}
+
+	/**
+	 * Times the reading of a structures.Graph from text and
+	 * MST.executeMeldable(Graph), on the same graph as the file mode, and
+	 * reports their memory use.
+	 *
+	 * @param n
+	 *            Number of vertices
+	 * @param seed
+	 *            Seed of the graph
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void text(int n, long seed) throws IOException {
+		final File file = File.createTempFile("mst", ".txt");
+		try {
+			long m = 8L * n;
+			writeGraph(file, n, m, 1000000, seed);
+			System.out.println(String.format("%,d vertices, %,d edges, %,d byte text file", n, m, file.length()));
+			final Graph[] graph = new Graph[1];
+			resetPeakHeap();
+			report("new Graph(file)", m, Bench.time(new Bench.Task() {
+				public void setup() {
+					graph[0] = null;
+				}
+
+				public long run() {
+					graph[0] = load(file);
+					return graph[0].vertices.length;
+				}
+			}, 1, 3));
+			memory();
+			resetPeakHeap();
+			report("MST.executeMeldable(Graph)", m, Bench.time(new Bench.Task() {
+				public long run() {
+					return totalWeight(MST.executeMeldable(graph[0]));
+				}
+			}, 1, 3));
+			memory();
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Finds the MST of a random connected graph in a binary graph file ten
+	 * times the size of the max heap with ExternalMST, with an eighth of the
+	 * max heap as the memory budget, reports its I/O throughput, and checks
+	 * that the MST has n-1 arcs. The graph file is written straight from the
+	 * generator, without text.
+	 *
+	 * @param n
+	 *            Number of vertices
+	 * @param seed
+	 *            Seed of the graph
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	static void external(int n, long seed) throws IOException {
+		File in = File.createTempFile("mst", ".bin"), out = File.createTempFile("mst", ".bin");
+		try {
+			long heap = Runtime.getRuntime().maxMemory();
+			long m = Math.max(n - 1, 10 * heap / GraphFile.EDGE_BYTES);
+			String[] names = new String[n];
+			for (int v = 0; v < n; v++) {
+				names[v] = "v" + v;
+			}
+			Random random = new Random(seed);
+			GraphFile.Writer w = new GraphFile.Writer(in.getPath(), names);
+			try {
+				for (int v = 1; v < n; v++) {
+					w.add(v, random.nextInt(v), random.nextInt(1000000));
+				}
+				for (long e = n - 1; n > 1 && e < m; e++) {
+					int x = random.nextInt(n), y = random.nextInt(n - 1);
+					w.add(x, y >= x ? y + 1 : y, random.nextInt(1000000));
+				}
+			} finally {
+				w.close();
+			}
+			names = null;
+			System.out.println(String.format("%,d vertices, %,d edges, input %,d bytes, %.1f times the max heap of %,d bytes",
+					n, m, in.length(), (double) in.length() / heap, heap));
+
+			ExternalMST.Report report = ExternalMST.execute(GraphFile.open(in.getPath()), out.getPath(), heap / 8,
+					null);
+			System.out.println(report);
+
+			GraphFile mst = GraphFile.open(out.getPath());
+			long weight = 0;
+			for (long e = 0; e < mst.edgeCount(); e++) {
+				weight += mst.weight(e);
+			}
+			if (mst.edgeCount() != n - 1) {
+				throw new IOException("MST has " + mst.edgeCount() + " arcs, expected " + (n - 1));
+			}
+			System.out.println(String.format("MST of %,d arcs, weight %,d", mst.edgeCount(), weight));
+		} finally {
+			in.delete();
+			out.delete();
+		}
+	}
+
+	/**
+	 * Times the updates of DynamicMST on a random connected graph with 4 edges
+	 * per vertex: the insertion of edges between random pairs of vertices, and
+	 * the deletion of random MST edges, in batches of 1000, against a rebuild
+	 * of the MST with MST.executeMeldable. Every run deletes edges that no
+	 * earlier run has deleted, so every deletion cuts the MST and has to find
+	 * a replacement edge.
+	 *
+	 * @param n
+	 *            Number of vertices
+	 * @param seed
+	 *            Seed of the graph and of the updates
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void dynamic(int n, long seed) throws IOException {
+		final File file = File.createTempFile("mst", ".txt");
+		try {
+			long m = 4L * n;
+			writeGraph(file, n, m, 1000000, seed);
+			System.out.println(String.format("%,d vertices, %,d edges", n, m));
+			final Graph graph = new Graph(file.getPath());
+			final ArrayList<PartialTree.Arc> mst = MST.executeMeldable(graph);
+			report("MST.executeMeldable(Graph)", m, Bench.time(new Bench.Task() {
+				public long run() {
+					return MST.executeMeldable(graph).size();
+				}
+			}, 1, 3));
+
+			final DynamicMST dynamic = new DynamicMST(graph, mst);
+			final Random random = new Random(seed);
+			final int batch = 1000;
+			updates("DynamicMST.insertEdge", batch, Bench.time(new Bench.Task() {
+				public long run() {
+					Vertex[] vertices = graph.vertices;
+					for (int i = 0; i < batch;) {
+						Vertex x = vertices[random.nextInt(vertices.length)];
+						Vertex y = vertices[random.nextInt(vertices.length)];
+						try {
+							dynamic.insertEdge(x, y, random.nextInt(1000000));
+							i++;
+						} catch (IllegalArgumentException e) {
+							// same vertex, or the edge is in the graph
+						}
+					}
+					return dynamic.totalWeight();
+				}
+			}, 1, 5));
+
+			Collections.shuffle(mst, random);
+			final int[] next = new int[1];
+			updates("DynamicMST.deleteEdge of an MST edge", batch, Bench.time(new Bench.Task() {
+				public long run() {
+					for (int i = 0; i < batch; i++) {
+						PartialTree.Arc a = mst.get(next[0]++);
+						dynamic.deleteEdge(a.v1, a.v2);
+					}
+					return dynamic.totalWeight();
+				}
+			}, 1, 5));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes a random connected graph in the text format read by
+	 * structures.Graph: the vertices v0 to v(n-1), the edges of a random
+	 * spanning tree, so that the graph is connected, and then edges between
+	 * random pairs of distinct vertices, which may repeat a pair.
+	 *
+	 * @param file
+	 *            File to be written
+	 * @param n
+	 *            Number of vertices
+	 * @param m
+	 *            Number of edges, at least n-1
+	 * @param maxWeight
+	 *            Bound on the weights, which are from 0 to maxWeight-1
+	 * @param seed
+	 *            Seed of the graph
+	 * @throws IOException
+	 *             If there is an error writing
+	 */
+	static void writeGraph(File file, int n, long m, int maxWeight, long seed) throws IOException {
+		Random random = new Random(seed);
+		BufferedWriter w = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			w.write(n + "\n");
+			for (int v = 0; v < n; v++) {
+				w.write("v" + v + "\n");
+			}
+			for (int v = 1; v < n; v++) {
+				w.write("v" + v + " v" + random.nextInt(v) + " " + random.nextInt(maxWeight) + "\n");
+			}
+			for (long e = n - 1; n > 1 && e < m; e++) {
+				int x = random.nextInt(n), y = random.nextInt(n - 1);
+				if (y >= x) {
+					y++;
+				}
+				w.write("v" + x + " v" + y + " " + random.nextInt(maxWeight) + "\n");
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	/**
+	 * Sums the weights of the arcs of an MST
+	 */
+	static long totalWeight(ArrayList<PartialTree.Arc> arcs) {
+		long total = 0;
+		for (PartialTree.Arc a : arcs) {
+			total += a.weight;
+		}
+		return total;
+	}
+
+	/**
+	 * Reads a graph from a text file, for a task
+	 */
+	private static Graph load(File file) {
+		try {
+			return new Graph(file.getPath());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Opens a binary graph file, for a task
+	 */
+	private static GraphFile open(String file) {
+		try {
+			return GraphFile.open(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Resets the peak use of the heap memory pools
+	 */
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Prints the peak use of the heap memory pools since they were last reset,
+	 * and the resident set size of the process and its peak, from
+	 * /proc/self/status where there is one
+	 */
+	private static void memory() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		String rss = "n/a", hwm = "n/a";
+		try {
+			BufferedReader r = new BufferedReader(new FileReader("/proc/self/status"));
+			try {
+				String line;
+				while ((line = r.readLine()) != null) {
+					if (line.startsWith("VmRSS:")) {
+						rss = line.substring(6).trim();
+					} else if (line.startsWith("VmHWM:")) {
+						hwm = line.substring(6).trim();
+					}
+				}
+			} finally {
+				r.close();
+			}
+		} catch (IOException e) {
+			// not Linux, no resident set size
+		}
+		System.out.println(String.format("  peak heap %,d kB, RSS %s, peak RSS %s", peak / 1024, rss, hwm));
+	}
+
+	/**
+	 * Prints the times of an MST run, and the edges processed per second
+	 */
+	private static void report(String name, long m, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.0f edges/s", name, result, result.perSecond(m)));
+	}
+
+	/**
+	 * Prints the times of a batch of updates, and the time of one update
+	 */
+	private static void updates(String name, int batch, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.1f us each", name, result, result.nanosEach(batch) / 1000));
+	}
+
+	/**
+	 * Runs a benchmark. The arguments are the mode, the number of vertices,
+	 * which defaults to 2000 for the dense mode, to 100000 for the external
+	 * mode, whose vertex names are all on the heap, and to 1000000 for the
+	 * others, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Mode, number of vertices, seed
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = args.length > 0 ? args[0] : "dense";
+		int n = args.length > 1 ? Integer.parseInt(args[1])
+				: mode.equals("dense") ? 2000 : mode.equals("external") ? 100000 : 1000000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		if (mode.equals("dense")) {
+			dense(n, seed);
+		} else if (mode.equals("file")) {
+			file(n, seed);
+		} else if (mode.equals("text")) {
+			text(n, seed);
+		} else if (mode.equals("external")) {
+			external(n, seed);
+		} else if (mode.equals("dynamic")) {
+			dynamic(n, seed);
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package apps;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import structures.Graph;
+import structures.Vertex;
+
+/**
+ * This class checks the MST algorithms against MST.execute on many small
+ * random graphs from a seeded generator, and throws an exception at the first
+ * graph on which they disagree. It is run as
+ *
+ * <pre>
+ * java apps.MSTCheck [graphs] [seed]
+ * </pre>
+ *
+ * MSTs with tied weights may differ in their arcs, so they are compared by
+ * their number of arcs and their total weight.
+ */
+public class MSTCheck {
+
+	/**
+	 * Checks that MST.executeMeldable finds an MST of the same size and weight
+	 * as MST.execute
+	 *
+	 * @param file
+	 *            Text graph file to be used
+	 * @param random
+	 *            Source of the graphs
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void meldable(File file, Random random) throws IOException {
+		int n = 2 + random.nextInt(60);
+		MSTBench.writeGraph(file, n, n - 1 + random.nextInt(n * n / 2 + 1), 50, random.nextLong());
+		ArrayList<PartialTree.Arc> expected = MST.execute(MST.initialize(new Graph(file.getPath())));
+		same("executeMeldable(Graph)", expected, MST.executeMeldable(new Graph(file.getPath())));
+	}
+
+	/**
+	 * Checks that MST.executeMeldable finds an MST of the same size and weight
+	 * as MST.execute when it reads the graph from a binary graph file
+	 *
+	 * @param file
+	 *            Text graph file to be used
+	 * @param bin
+	 *            Binary graph file to be used
+	 * @param random
+	 *            Source of the graphs
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph files
+	 */
+	static void meldableFile(File file, File bin, Random random) throws IOException {
+		int n = 2 + random.nextInt(60);
+		MSTBench.writeGraph(file, n, n - 1 + random.nextInt(n * n / 2 + 1), 50, random.nextLong());
+		GraphFile.convert(file.getPath(), bin.getPath());
+		ArrayList<PartialTree.Arc> expected = MST.execute(MST.initialize(new Graph(file.getPath())));
+		same("executeMeldable(GraphFile)", expected, MST.executeMeldable(GraphFile.open(bin.getPath())));
+	}
+
+	/**
+	 * Checks that ExternalMST finds an MST of the same size and weight as
+	 * MST.execute, with memory budgets from a single edge to all the edges, so
+	 * that there are from one to many runs to merge
+	 *
+	 * @param file
+	 *            Text graph file to be used
+	 * @param bin
+	 *            Binary graph file to be used
+	 * @param out
+	 *            Binary graph file for the MST
+	 * @param random
+	 *            Source of the graphs
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph files
+	 */
+	static void external(File file, File bin, File out, Random random) throws IOException {
+		int n = 2 + random.nextInt(80);
+		long m = n - 1 + random.nextInt(n * n / 2 + 1);
+		MSTBench.writeGraph(file, n, m, 50, random.nextLong());
+		GraphFile.convert(file.getPath(), bin.getPath());
+		ArrayList<PartialTree.Arc> expected = MST.execute(MST.initialize(new Graph(file.getPath())));
+		long budget = ExternalMST.BYTES_PER_EDGE * (1 + random.nextInt((int) m));
+		ExternalMST.execute(GraphFile.open(bin.getPath()), out.getPath(), budget, null);
+		GraphFile mst = GraphFile.open(out.getPath());
+		long weight = 0;
+		for (long e = 0; e < mst.edgeCount(); e++) {
+			weight += mst.weight(e);
+		}
+		same("ExternalMST", expected, mst.edgeCount(), weight);
+	}
+
+	/**
+	 * Checks that DynamicMST keeps an MST of the same size and weight as
+	 * MST.execute finds on the updated graph, through random insertions,
+	 * deletions and weight decreases. Deletions that would disconnect the
+	 * graph are skipped, since MST.execute needs a connected graph.
+	 *
+	 * @param file
+	 *            Text graph file to be used
+	 * @param random
+	 *            Source of the graphs and the updates
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void dynamic(File file, Random random) throws IOException {
+		int n = 2 + random.nextInt(30);
+		MSTBench.writeGraph(file, n, 2 * n, 50, random.nextLong());
+		Graph graph = new Graph(file.getPath());
+		DynamicMST dynamic = new DynamicMST(graph, MST.execute(MST.initialize(graph)));
+
+		// the edges of the graph by vertex pair, with the lightest weight of
+		// any parallel edges, as DynamicMST keeps them
+		HashMap<Long,Integer> edges = new HashMap<Long,Integer>();
+		for (int i = 0; i < n; i++) {
+			for (Vertex.Neighbor ptr = graph.vertices[i].neighbors; ptr != null; ptr = ptr.next) {
+				Long key = pair(i, Integer.parseInt(ptr.vertex.name.substring(1)));
+				Integer w = edges.get(key);
+				if (w == null || ptr.weight < w) {
+					edges.put(key, ptr.weight);
+				}
+			}
+		}
+
+		for (int op = 0; op < 100; op++) {
+			int x = random.nextInt(n), y = random.nextInt(n);
+			if (x == y) {
+				continue;
+			}
+			Vertex vx = graph.vertices[x], vy = graph.vertices[y];
+			Long key = pair(x, y);
+			Integer w = edges.get(key);
+			if (w == null) {
+				w = random.nextInt(60) - 5;
+				dynamic.insertEdge(vx, vy, w);
+				edges.put(key, w);
+			} else if (random.nextBoolean() && connectedWithout(n, edges, key)) {
+				dynamic.deleteEdge(vx, vy);
+				edges.remove(key);
+			} else {
+				w -= random.nextInt(10);
+				dynamic.decreaseWeight(vx, vy, w);
+				edges.put(key, w);
+			}
+
+			writeEdges(file, n, edges);
+			ArrayList<PartialTree.Arc> expected = MST.execute(MST.initialize(new Graph(file.getPath())));
+			same("DynamicMST.totalWeight", expected, expected.size(), dynamic.totalWeight());
+			same("DynamicMST.arcs", expected, dynamic.arcs());
+		}
+	}
+
+	/**
+	 * Checks that DynamicMST handles edges of weight Integer.MIN_VALUE, which
+	 * are as light as a vertex of the link-cut tree used to be: a path of two
+	 * such edges, closed into a cycle by a heavier edge, then opened again
+	 *
+	 * @param file
+	 *            Text graph file to be used
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph file
+	 */
+	static void lightestWeights(File file) throws IOException {
+		HashMap<Long,Integer> edges = new HashMap<Long,Integer>();
+		edges.put(pair(0, 1), Integer.MIN_VALUE);
+		edges.put(pair(1, 2), Integer.MIN_VALUE);
+		writeEdges(file, 3, edges);
+		Graph graph = new Graph(file.getPath());
+		Vertex[] v = graph.vertices;
+		DynamicMST dynamic = new DynamicMST(graph, MST.execute(MST.initialize(graph)));
+		dynamic.insertEdge(v[0], v[2], 5);
+		dynamic.decreaseWeight(v[0], v[2], Integer.MIN_VALUE);
+		dynamic.deleteEdge(v[0], v[1]);
+		if (dynamic.arcs().size() != 2 || dynamic.totalWeight() != 2L * Integer.MIN_VALUE) {
+			throw new IllegalStateException("DynamicMST with weight Integer.MIN_VALUE: " + dynamic.arcs());
+		}
+	}
+
+	/**
+	 * Key of an unordered pair of vertex numbers
+	 */
+	private static Long pair(int x, int y) {
+		return x < y ? ((long) x << 32) | y : ((long) y << 32) | x;
+	}
+
+	/**
+	 * Tells if a graph stays connected when an edge is left out
+	 */
+	private static boolean connectedWithout(int n, Map<Long,Integer> edges, Long skip) {
+		int[] parent = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+		}
+		int trees = n;
+		for (Long key : edges.keySet()) {
+			if (!key.equals(skip)) {
+				int a = root(parent, (int) (key >>> 32)), b = root(parent, (int) (long) key);
+				if (a != b) {
+					parent[a] = b;
+					trees--;
+				}
+			}
+		}
+		return trees == 1;
+	}
+
+	private static int root(int[] parent, int x) {
+		while (parent[x] != x) {
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Writes a graph in the text format read by structures.Graph, with the
+	 * vertices v0 to v(n-1)
+	 */
+	private static void writeEdges(File file, int n, Map<Long,Integer> edges) throws IOException {
+		BufferedWriter w = new BufferedWriter(new FileWriter(file));
+		try {
+			w.write(n + "\n");
+			for (int v = 0; v < n; v++) {
+				w.write("v" + v + "\n");
+			}
+			for (Map.Entry<Long,Integer> e : edges.entrySet()) {
+				long key = e.getKey();
+				w.write("v" + (key >>> 32) + " v" + (int) key + " " + e.getValue() + "\n");
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	/**
+	 * Throws an exception if an MST differs in size or weight from the one
+	 * found by MST.execute
+	 */
+	private static void same(String name, ArrayList<PartialTree.Arc> expected, ArrayList<PartialTree.Arc> actual)
+			throws IllegalStateException {
+		same(name, expected, actual.size(), MSTBench.totalWeight(actual));
+	}
+
+	private static void same(String name, ArrayList<PartialTree.Arc> expected, long arcs, long weight)
+			throws IllegalStateException {
+		if (arcs != expected.size() || weight != MSTBench.totalWeight(expected)) {
+			throw new IllegalStateException(name + ": " + arcs + " arcs of weight " + weight + ", expected "
+					+ expected.size() + " arcs of weight " + MSTBench.totalWeight(expected));
+		}
+	}
+
+	/**
+	 * Runs the checks. The arguments are the number of graphs per check, which
+	 * defaults to 200, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Number of graphs, seed
+	 * @throws IOException
+	 *             If there is an error reading or writing the graph files
+	 */
+	public static void main(String[] args) throws IOException {
+		int graphs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		File file = File.createTempFile("mst", ".txt"), bin = File.createTempFile("mst", ".bin"),
+				out = File.createTempFile("mst", ".bin");
+		try {
+			for (int i = 0; i < graphs; i++) {
+				meldable(file, random);
+			}
+			System.out.println("executeMeldable(Graph) ok");
+			for (int i = 0; i < graphs; i++) {
+				meldableFile(file, bin, random);
+			}
+			System.out.println("executeMeldable(GraphFile) ok");
+			for (int i = 0; i < graphs; i++) {
+				external(file, bin, out, random);
+			}
+			System.out.println("ExternalMST ok");
+			for (int i = 0; i < graphs; i++) {
+				dynamic(file, random);
+			}
+			lightestWeights(file);
+			System.out.println("DynamicMST ok");
+		} finally {
+			file.delete();
+			bin.delete();
+			out.delete();
+		}
+	}
+}
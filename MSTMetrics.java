@@ -0,0 +1,165 @@
+package apps;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class collects counters and phase timers for the MST algorithm. It is
+ * opt in: nothing is counted unless an instance is installed with
+ * MST.setMetrics. A run counts in a Counts object of its own, in plain fields
+ * that cost no more than local variables, and adds them to the totals here
+ * once, when it ends. The totals are LongAdders, so runs on several threads
+ * can report to the same instance without losing counts, and JMX threads see
+ * whole values. Only the tree count is written while a run is in progress,
+ * once per merge.
+ */
+public class MSTMetrics implements MSTMetricsMBean {
+
+	/**
+	 * Counters and timers of a single run, in plain fields
+	 */
+	static final class Counts {
+		long deleteMins;
+		long staleArcs;
+		long prunedArcs;
+		long prunes;
+		long membershipChecks;
+		long membershipSteps;
+		long merges;
+		long selectNanos;
+		long removeTreeNanos;
+		long mergeNanos;
+	}
+
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder deleteMins = new LongAdder();
+	private final LongAdder staleArcs = new LongAdder();
+	private final LongAdder prunedArcs = new LongAdder();
+	private final LongAdder prunes = new LongAdder();
+	private final LongAdder membershipChecks = new LongAdder();
+	private final LongAdder membershipSteps = new LongAdder();
+	private final LongAdder merges = new LongAdder();
+	private final LongAdder selectNanos = new LongAdder();
+	private final LongAdder removeTreeNanos = new LongAdder();
+	private final LongAdder mergeNanos = new LongAdder();
+	private final LongAdder executeNanos = new LongAdder();
+	volatile int treeCount;
+
+	/**
+	 * Adds the counts of a completed run to the totals
+	 *
+	 * @param c
+	 *            Counts of the run
+	 * @param nanos
+	 *            Time of the run, in nanoseconds
+	 */
+	void add(Counts c, long nanos) {
+		deleteMins.add(c.deleteMins);
+		staleArcs.add(c.staleArcs);
+		prunedArcs.add(c.prunedArcs);
+		prunes.add(c.prunes);
+		membershipChecks.add(c.membershipChecks);
+		membershipSteps.add(c.membershipSteps);
+		merges.add(c.merges);
+		selectNanos.add(c.selectNanos);
+		removeTreeNanos.add(c.removeTreeNanos);
+		mergeNanos.add(c.mergeNanos);
+		executeNanos.add(nanos);
+		executions.increment();
+	}
+
+	/**
+	 * Registers this object with the platform MBean server, under the name
+	 * apps:type=MSTMetrics,name=<i>name</i>
+	 *
+	 * @param name
+	 *            Name that tells this metrics object apart from others
+	 * @return Object name under which this object is registered
+	 * @throws JMException
+	 *             If the name is malformed or already registered
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName on = new ObjectName("apps:type=MSTMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+		return on;
+	}
+
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	public long getDeleteMins() {
+		return deleteMins.sum();
+	}
+
+	public long getStaleArcs() {
+		return staleArcs.sum();
+	}
+
+	public long getPrunedArcs() {
+		return prunedArcs.sum();
+	}
+
+	public long getPrunes() {
+		return prunes.sum();
+	}
+
+	public long getMembershipChecks() {
+		return membershipChecks.sum();
+	}
+
+	public long getMembershipSteps() {
+		return membershipSteps.sum();
+	}
+
+	public long getMerges() {
+		return merges.sum();
+	}
+
+	public int getTreeCount() {
+		return treeCount;
+	}
+
+	public long getSelectNanos() {
+		return selectNanos.sum();
+	}
+
+	public long getRemoveTreeNanos() {
+		return removeTreeNanos.sum();
+	}
+
+	public long getMergeNanos() {
+		return mergeNanos.sum();
+	}
+
+	public long getExecuteNanos() {
+		return executeNanos.sum();
+	}
+
+	public void reset() {
+		executions.reset();
+		deleteMins.reset();
+		staleArcs.reset();
+		prunedArcs.reset();
+		prunes.reset();
+		membershipChecks.reset();
+		membershipSteps.reset();
+		merges.reset();
+		treeCount = 0;
+		selectNanos.reset();
+		removeTreeNanos.reset();
+		mergeNanos.reset();
+		executeNanos.reset();
+	}
+
+	public String toString() {
+		return "executions=" + executions + " deleteMins=" + deleteMins + " staleArcs=" + staleArcs
+				+ " prunes=" + prunes + " prunedArcs=" + prunedArcs + " membershipChecks=" + membershipChecks
+				+ " membershipSteps=" + membershipSteps + " merges=" + merges + " select="
+				+ selectNanos.sum() / 1000000 + "ms removeTree=" + removeTreeNanos.sum() / 1000000 + "ms merge="
+				+ mergeNanos.sum() / 1000000 + "ms execute=" + executeNanos.sum() / 1000000 + "ms";
+	}
+}
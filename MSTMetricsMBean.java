@@ -0,0 +1,83 @@
+package apps;
+
+/**
+ * Management interface of MSTMetrics, through which the MST counters and
+ * timers are read over JMX
+ */
+public interface MSTMetricsMBean {
+
+	/**
+	 * @return Number of completed runs of the MST algorithm
+	 */
+	long getExecutions();
+
+	/**
+	 * @return Number of deleteMin calls on arc queues
+	 */
+	long getDeleteMins();
+
+	/**
+	 * @return Number of arcs thrown away because they lead back into the
+	 *         same tree
+	 */
+	long getStaleArcs();
+
+	/**
+	 * @return Number of arcs removed by bulk pruning of arc queues
+	 */
+	long getPrunedArcs();
+
+	/**
+	 * @return Number of bulk prunes of arc queues
+	 */
+	long getPrunes();
+
+	/**
+	 * @return Number of tree membership checks, including one for every tree
+	 *         that removeTreeContaining looks at
+	 */
+	long getMembershipChecks();
+
+	/**
+	 * @return Total number of parent links walked by membership checks, in
+	 *         MST.execute and in removeTreeContaining
+	 */
+	long getMembershipSteps();
+
+	/**
+	 * @return Number of tree merges
+	 */
+	long getMerges();
+
+	/**
+	 * @return Number of partial trees left in the running (or last) MST run.
+	 *         The other counters and timers only take in a run when it ends.
+	 */
+	int getTreeCount();
+
+	/**
+	 * @return Time spent finding the minimum arc out of a tree, in
+	 *         nanoseconds
+	 */
+	long getSelectNanos();
+
+	/**
+	 * @return Time spent in removeTreeContaining, in nanoseconds
+	 */
+	long getRemoveTreeNanos();
+
+	/**
+	 * @return Time spent merging trees, in nanoseconds
+	 */
+	long getMergeNanos();
+
+	/**
+	 * @return Total time of completed MST runs, in nanoseconds
+	 */
+	long getExecuteNanos();
+
+	/**
+	 * Sets all counters and timers to zero
+	 */
+	void reset();
+}
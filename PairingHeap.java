@@ -0,0 +1,232 @@
+package structures;
+
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements a min pairing heap. It supports the same operations as
+ * MinHeap, but two heaps are merged (melded) in O(1) time by linking their
+ * roots, which makes it a good fit for priority queues that are repeatedly
+ * combined, such as the arc queues of partial trees in the MST algorithm.
+ *
+ * @param <T>
+ *            Type of items in the heap
+ */
+public class PairingHeap<T extends Comparable<T>> {
+
+	/**
+	 * Test applied to items when the heap is pruned in bulk
+	 */
+	public interface Filter<T> {
+		/**
+		 * Tells whether an item is to be removed from the heap
+		 *
+		 * @param item
+		 *            Item in the heap
+		 * @return True if the item is to be removed, false otherwise
+		 */
+		boolean matches(T item);
+	}
+
+	/**
+	 * Heap node, in leftmost child - right sibling form
+	 */
+	private static class HeapNode<T> {
+		T data;
+		HeapNode<T> child;
+		HeapNode<T> sibling;
+
+		HeapNode(T data) {
+			this.data = data;
+			child = null;
+			sibling = null;
+		}
+	}
+
+	/**
+	 * Root of the heap, holds the minimum item
+	 */
+	private HeapNode<T> root;
+
+	/**
+	 * Number of items in the heap
+	 */
+	private int size;
+
+	/**
+	 * Initializes this heap to empty
+	 */
+	public PairingHeap() {
+		root = null;
+		size = 0;
+	}
+
+	/**
+	 * Inserts an item into this heap
+	 *
+	 * @param item
+	 *            Item to be inserted
+	 */
+	public void insert(T item) {
+		root = link(root, new HeapNode<T>(item));
+		size++;
+	}
+
+	/**
+	 * Returns the minimum item in this heap, without removing it
+	 *
+	 * @return Minimum item
+	 * @throws NoSuchElementException
+	 *             If the heap is empty
+	 */
+	public T getMin() throws NoSuchElementException {
+		if (root == null) {
+			throw new NoSuchElementException();
+		}
+		return root.data;
+	}
+
+	/**
+	 * Removes and returns the minimum item in this heap
+	 *
+	 * @return Minimum item
+	 * @throws NoSuchElementException
+	 *             If the heap is empty
+	 */
+	public T deleteMin() throws NoSuchElementException {
+		if (root == null) {
+			throw new NoSuchElementException();
+		}
+		T ret = root.data;
+		root = combine(root.child);
+		size--;
+		return ret;
+	}
+
+	/**
+	 * Merges another heap into this heap, in O(1) time. The other heap is
+	 * empty after the merge.
+	 *
+	 * @param other
+	 *            Heap to be merged into this heap
+	 */
+	public void merge(PairingHeap<T> other) {
+		if (other == this) {
+			return;
+		}
+		root = link(root, other.root);
+		size += other.size;
+		other.root = null;
+		other.size = 0;
+	}
+
+	/**
+	 * Removes all items that match a filter, in a single O(n) pass over the
+	 * heap, then rebuilds the heap from the remaining items.
+	 *
+	 * @param filter
+	 *            Filter that picks the items to be removed
+	 * @return Number of items removed
+	 */
+	public int prune(Filter<T> filter) {
+		HeapNode<T> work = root, survivors = null;
+		int removed = 0;
+		while (work != null) {
+			HeapNode<T> x = work;
+			work = x.sibling;
+			// move the children of x to the work list
+			for (HeapNode<T> c = x.child; c != null;) {
+				HeapNode<T> next = c.sibling;
+				c.sibling = work;
+				work = c;
+				c = next;
+			}
+			x.child = null;
+			if (filter.matches(x.data)) {
+				removed++;
+			} else {
+				x.sibling = survivors;
+				survivors = x;
+			}
+		}
+		root = combine(survivors);
+		size -= removed;
+		return removed;
+	}
+
+	/**
+	 * Gives the number of items in this heap
+	 *
+	 * @return Number of items
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Tells whether this heap is empty
+	 *
+	 * @return True if empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Links two heap trees, the one with the larger root becomes the leftmost
+	 * child of the other. Neither root may have a sibling.
+	 */
+	private HeapNode<T> link(HeapNode<T> a, HeapNode<T> b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (b.data.compareTo(a.data) < 0) {
+			HeapNode<T> tmp = a;
+			a = b;
+			b = tmp;
+		}
+		b.sibling = a.child;
+		a.child = b;
+		return a;
+	}
+
+	/**
+	 * Combines a sibling list of heap trees into a single tree with the
+	 * standard two-pass pairing: link pairs left to right, then link the
+	 * results right to left.
+	 */
+	private HeapNode<T> combine(HeapNode<T> first) {
+		if (first == null) {
+			return null;
+		}
+		// first pass, the linked pairs are chained in reverse order
+		HeapNode<T> pairs = null;
+		while (first != null) {
+			HeapNode<T> a = first, b = a.sibling;
+			if (b == null) {
+				a.sibling = pairs;
+				pairs = a;
+				break;
+			}
+			first = b.sibling;
+			a.sibling = null;
+			b.sibling = null;
+			HeapNode<T> l = link(a, b);
+			l.sibling = pairs;
+			pairs = l;
+		}
+		// second pass
+		HeapNode<T> ret = pairs;
+		pairs = pairs.sibling;
+		ret.sibling = null;
+		while (pairs != null) {
+			HeapNode<T> next = pairs.sibling;
+			pairs.sibling = null;
+			ret = link(ret, pairs);
+			pairs = next;
+		}
+		return ret;
+	}
+}
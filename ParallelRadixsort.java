@@ -0,0 +1,326 @@
+package apps;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class sorts strings that represent numbers in a given radix (2 to 36,
+ * the radixes accepted by java.lang.Character.digit) with a parallel MSD radix
+ * sort. As in Radixsort, the strings are right aligned, so a shorter string is
+ * treated as if it were padded with leading 0's, and the sort is stable: the
+ * result is the same as that of Radixsort.sort.
+ *
+ * The first digit is distributed in parallel: the input is split into chunks,
+ * every chunk counts its digits, and then every chunk scatters its items into
+ * its own region of each bucket, so that no two threads write to the same
+ * place. Each bucket is then sorted on the next digit as a fork-join task, and
+ * so on recursively. Small buckets are sorted with insertion sort.
+ */
+public class ParallelRadixsort {
+
+	/**
+	 * Ranges at most this long are sorted with insertion sort
+	 */
+	static final int INSERTION_CUTOFF = 32;
+
+	/**
+	 * Ranges shorter than this are sorted in the current task, longer ones are
+	 * forked
+	 */
+	static final int PARALLEL_CUTOFF = 1 << 13;
+
+	/**
+	 * Pool in which the sort tasks run
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Initializes this sorter to run in the common fork-join pool
+	 */
+	public ParallelRadixsort() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initializes this sorter to run in a given fork-join pool
+	 *
+	 * @param pool
+	 *            Pool in which the sort tasks run
+	 */
+	public ParallelRadixsort(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sorts strings that represent numbers in a radix, in ascending order
+	 *
+	 * @param a
+	 *            Strings to be sorted, sorted in place
+	 * @param radix
+	 *            Radix, 2 to 36
+	 * @throws IllegalArgumentException
+	 *             If the radix is out of range
+	 * @throws NumberFormatException
+	 *             If a string has a character that is not a digit in the radix
+	 */
+	public void sort(String[] a, int radix) throws IllegalArgumentException, NumberFormatException {
+		if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+			throw new IllegalArgumentException("Radix out of range: " + radix);
+		}
+		if (a.length < 2) {
+			return;
+		}
+		pool.invoke(new Top(new Job(a, radix)));
+	}
+
+	/**
+	 * State shared by all tasks of one sort
+	 */
+	private static class Job {
+		String[] a, tmp;
+		int radix;
+		int maxDigits;
+
+		Job(String[] a, int radix) {
+			this.a = a;
+			this.radix = radix;
+			tmp = new String[a.length];
+		}
+
+		/**
+		 * Digit value at a level, level 0 being the leftmost of maxDigits digits
+		 */
+		int digit(String s, int level) {
+			int c = s.length() - maxDigits + level;
+			if (c < 0) { // padding with 0's
+				return 0;
+			}
+			int d = Character.digit(s.charAt(c), radix);
+			if (d < 0) {
+				throw new NumberFormatException("Not a radix " + radix + " number: " + s);
+			}
+			return d;
+		}
+
+		/**
+		 * Compares two strings from a level on
+		 */
+		int compare(String s, String t, int level) {
+			for (int l = level; l < maxDigits; l++) {
+				int d = digit(s, l) - digit(t, l);
+				if (d != 0) {
+					return d;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Stable insertion sort of a[lo..hi) from a level on
+		 */
+		void insertionSort(int lo, int hi, int level) {
+			for (int i = lo + 1; i < hi; i++) {
+				String s = a[i];
+				int j = i - 1;
+				while (j >= lo && compare(a[j], s, level) > 0) {
+					a[j + 1] = a[j];
+					j--;
+				}
+				a[j + 1] = s;
+			}
+		}
+
+		/**
+		 * Sorts a[lo..hi) from a level on, using tmp[lo..hi) as scratch. Large
+		 * buckets are forked, the others are sorted in the current task.
+		 */
+		void sortRange(int lo, int hi, int level) {
+			if (hi - lo <= INSERTION_CUTOFF) {
+				insertionSort(lo, hi, level);
+				return;
+			}
+			if (level >= maxDigits) {
+				return;
+			}
+			int[] count = new int[radix];
+			for (int i = lo; i < hi; i++) {
+				count[digit(a[i], level)]++;
+			}
+			int sum = lo;
+			for (int d = 0; d < radix; d++) {
+				int c = count[d];
+				count[d] = sum;
+				sum += c;
+			}
+			for (int i = lo; i < hi; i++) {
+				tmp[count[digit(a[i], level)]++] = a[i];
+			}
+			System.arraycopy(tmp, lo, a, lo, hi - lo);
+
+			// count[d] is now the end of bucket d
+			ArrayList<Bucket> forks = null;
+			int start = lo;
+			for (int d = 0; d < radix; d++) {
+				int end = count[d];
+				if (end - start >= PARALLEL_CUTOFF) {
+					if (forks == null) {
+						forks = new ArrayList<Bucket>();
+					}
+					Bucket b = new Bucket(this, start, end, level + 1, false);
+					b.fork();
+					forks.add(b);
+				} else if (end - start > 1) {
+					sortRange(start, end, level + 1);
+				}
+				start = end;
+			}
+			if (forks != null) {
+				for (Bucket b : forks) {
+					b.join();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts one bucket, first copying it back from the scratch array if it was
+	 * scattered there by the top level
+	 */
+	private static class Bucket extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		Job job;
+		int lo, hi, level;
+		boolean copy;
+
+		Bucket(Job job, int lo, int hi, int level, boolean copy) {
+			this.job = job;
+			this.lo = lo;
+			this.hi = hi;
+			this.level = level;
+			this.copy = copy;
+		}
+
+		protected void compute() {
+			if (copy) {
+				System.arraycopy(job.tmp, lo, job.a, lo, hi - lo);
+			}
+			if (hi - lo > 1) {
+				job.sortRange(lo, hi, level);
+			}
+		}
+	}
+
+	/**
+	 * Top level of the sort: parallel max length, parallel count and scatter
+	 * of the first digit, then one task per bucket
+	 */
+	private class Top extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		Job job;
+
+		Top(Job job) {
+			this.job = job;
+		}
+
+		protected void compute() {
+			final Job job = this.job;
+			final String[] a = job.a;
+			final int n = a.length;
+			final int chunks = Math.max(1, Math.min(pool.getParallelism(), n / PARALLEL_CUTOFF));
+			final int[] maxLen = new int[chunks];
+			final int[][] counts = new int[chunks][job.radix];
+
+			ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>(chunks);
+			for (int c = 0; c < chunks; c++) {
+				final int chunk = c;
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					protected void compute() {
+						int max = 0;
+						for (int i = lo(chunk, chunks, n); i < lo(chunk + 1, chunks, n); i++) {
+							max = Math.max(max, a[i].length());
+						}
+						maxLen[chunk] = max;
+					}
+				});
+			}
+			ForkJoinTask.invokeAll(tasks);
+			for (int c = 0; c < chunks; c++) {
+				job.maxDigits = Math.max(job.maxDigits, maxLen[c]);
+			}
+			if (n <= PARALLEL_CUTOFF || job.maxDigits == 0) {
+				job.sortRange(0, n, 0);
+				return;
+			}
+
+			// count first digits per chunk
+			tasks.clear();
+			for (int c = 0; c < chunks; c++) {
+				final int chunk = c;
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					protected void compute() {
+						int[] count = counts[chunk];
+						for (int i = lo(chunk, chunks, n); i < lo(chunk + 1, chunks, n); i++) {
+							count[job.digit(a[i], 0)]++;
+						}
+					}
+				});
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			// region of each chunk in each bucket, in chunk order for stability
+			int[] bucketEnd = new int[job.radix];
+			int sum = 0;
+			for (int d = 0; d < job.radix; d++) {
+				for (int c = 0; c < chunks; c++) {
+					int k = counts[c][d];
+					counts[c][d] = sum;
+					sum += k;
+				}
+				bucketEnd[d] = sum;
+			}
+
+			// scatter into the regions
+			tasks.clear();
+			for (int c = 0; c < chunks; c++) {
+				final int chunk = c;
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					protected void compute() {
+						int[] next = counts[chunk];
+						for (int i = lo(chunk, chunks, n); i < lo(chunk + 1, chunks, n); i++) {
+							job.tmp[next[job.digit(a[i], 0)]++] = a[i];
+						}
+					}
+				});
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			// sort the buckets
+			ArrayList<Bucket> buckets = new ArrayList<Bucket>(job.radix);
+			int start = 0;
+			for (int d = 0; d < job.radix; d++) {
+				if (bucketEnd[d] > start) {
+					buckets.add(new Bucket(job, start, bucketEnd[d], 1, true));
+				}
+				start = bucketEnd[d];
+			}
+			ForkJoinTask.invokeAll(buckets);
+		}
+	}
+
+	/**
+	 * Start of a chunk, when n items are split into chunks of near equal size
+	 */
+	private static int lo(int chunk, int chunks, int n) {
+		return (int) ((long) n * chunk / chunks);
+	}
+}
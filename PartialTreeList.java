@@ -105,12 +105,26 @@ public class PartialTreeList implements Iterable<PartialTree> {
      * @throws NoSuchElementException If there is no matching tree
      */
     public PartialTree removeTreeContaining(Vertex vertex) 
+    throws NoSuchElementException {
+    	return removeTreeContaining(vertex, null);
+    }
+    
+    /**
+     * Removes the tree in this list that contains a given vertex, and counts
+     * the trees checked and the parent links walked
+     * 
+     * @param vertex Vertex whose tree is to be removed
+     * @param c Counts of the MST run, null to count nothing
+     * @return The tree that is removed
+     * @throws NoSuchElementException If there is no matching tree
+     */
+    PartialTree removeTreeContaining(Vertex vertex, MSTMetrics.Counts c) 
     throws NoSuchElementException {
     	
     	if (rear==null)
     		throw new NoSuchElementException();
     	if (rear==rear.next){
-    		if (containsVertex(rear.tree, vertex)){
+    		if (containsVertex(rear.tree, vertex, c)){
     			PartialTree PTY = rear.tree;
     			rear = null;
     			size--;
@@ -121,7 +135,7 @@ public class PartialTreeList implements Iterable<PartialTree> {
     	Node ptr = rear.next;
     	Node prev = rear;
     	do {
-    		if (containsVertex(ptr.tree, vertex)){
+    		if (containsVertex(ptr.tree, vertex, c)){
     			PartialTree PTY = ptr.tree;
     			prev.next = ptr.next;
     			if (ptr==rear)
@@ -136,18 +150,27 @@ public class PartialTreeList implements Iterable<PartialTree> {
     	throw new NoSuchElementException();
      }
     
-    private static boolean containsVertex(PartialTree pt, Vertex v){
+    private static boolean containsVertex(PartialTree pt, Vertex v, MSTMetrics.Counts c){
     	
+    	if (c != null)
+    		c.membershipChecks++;
     	Vertex ptr = pt.getRoot();
     	if (ptr.equals(v))
     		return true;
+    	int steps = 0;
+    	boolean found = false;
     	while (!v.equals(v.parent)){
-    		if (v.parent.equals(ptr))
-    			return true;
+    		steps++;
+    		if (v.parent.equals(ptr)){
+    			found = true;
+    			break;
+    		}
     		v = v.parent;
     	}
+    	if (c != null)
+    		c.membershipSteps += steps;
     	
-    	return false;
+    	return found;
     }
     
     /**
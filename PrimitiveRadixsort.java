@@ -0,0 +1,528 @@
+package apps;
+
+import java.util.Arrays;
+
+/**
+ * This class sorts arrays of primitive int or long keys with an LSD radix
+ * sort, one byte per pass. Each pass counts the byte values, turns the counts
+ * into bucket start positions with a prefix sum, and moves the keys into a
+ * second array, after which the two arrays trade places. The second array
+ * and the counts are kept between sorts, so once they are large enough a
+ * sort creates no garbage at all.
+ *
+ * Long keys may carry an int or long payload, such as the row index of a
+ * record, which is moved along with its key in every pass; since every pass
+ * is stable, records with equal keys keep their input order.
+ *
+ * The adaptive sort of long keys first subtracts the least key, so that only
+ * the bits in which the keys differ are sorted on, and picks a digit width of
+ * 8, 11 or 16 bits from the key range and the number of keys. The histograms
+ * of all passes are counted in one pre-pass, and a pass in which every key
+ * falls in the same bucket is skipped, since it would not move any key.
+ *
+ * When only the smallest keys are needed, smallest(a, k) finds them with an
+ * MSD radix select: a histogram of the top byte tells which bucket holds the
+ * k-th key, the buckets below it are taken whole, the buckets above it are
+ * dropped, and only the one bucket goes on to the next byte. Just the k keys
+ * found are then sorted. TopN does the same for a stream of keys, in memory
+ * that is bounded by k.
+ *
+ * Keys are signed: in the last pass, on the most significant byte, the sign
+ * bit is flipped to pick the bucket, so that negative keys come first.
+ * Fixed point decimals sort correctly as long as all keys have the same scale
+ * (see RadixInput).
+ */
+public class PrimitiveRadixsort {
+
+	/**
+	 * Number of buckets per pass, one per byte value
+	 */
+	static final int BUCKETS = 256;
+
+	/**
+	 * Digit widths, in bits, that sortAdaptive chooses from
+	 */
+	static final int[] WIDTHS = { 8, 11, 16 };
+
+	/**
+	 * Bucket counts, then bucket start positions, for a pass
+	 */
+	private int[] count;
+
+	/**
+	 * Second array for int keys, grown as needed
+	 */
+	private int[] intBuf;
+
+	/**
+	 * Second array for long keys, grown as needed
+	 */
+	private long[] longBuf;
+
+	/**
+	 * Second array for long payloads, grown as needed
+	 */
+	private long[] payloadBuf;
+
+	/**
+	 * Histograms of all passes of an adaptive sort, one after the other,
+	 * grown as needed
+	 */
+	private int[] counts;
+
+	/**
+	 * Initializes this sorter, with no buffers yet
+	 */
+	public PrimitiveRadixsort() {
+		count = new int[BUCKETS];
+		intBuf = new int[0];
+		longBuf = new long[0];
+		payloadBuf = new long[0];
+		counts = new int[0];
+	}
+
+	/**
+	 * Sorts int keys in ascending order
+	 *
+	 * @param a
+	 *            Keys to be sorted, sorted in place
+	 */
+	public void sort(int[] a) {
+		int n = a.length;
+		if (intBuf.length < n) {
+			intBuf = new int[n];
+		}
+		int[] src = a, dst = intBuf;
+		int[] count = this.count;
+		for (int shift = 0; shift < 32; shift += 8) {
+			Arrays.fill(count, 0);
+			int flip = shift == 24 ? 0x80 : 0; // sign bit of the top byte
+			for (int i = 0; i < n; i++) {
+				count[((src[i] >>> shift) & 0xFF) ^ flip]++;
+			}
+			int sum = 0;
+			for (int d = 0; d < BUCKETS; d++) {
+				int c = count[d];
+				count[d] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < n; i++) {
+				int k = src[i];
+				dst[count[((k >>> shift) & 0xFF) ^ flip]++] = k;
+			}
+			int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		// an even number of passes leaves the result in a
+	}
+
+	/**
+	 * Sorts long keys in ascending order
+	 *
+	 * @param a
+	 *            Keys to be sorted, sorted in place
+	 */
+	public void sort(long[] a) {
+		int n = a.length;
+		if (longBuf.length < n) {
+			longBuf = new long[n];
+		}
+		long[] src = a, dst = longBuf;
+		int[] count = this.count;
+		for (int shift = 0; shift < 64; shift += 8) {
+			int flip = shift == 56 ? 0x80 : 0; // sign bit of the top byte
+			histogram(src, n, shift, flip);
+			for (int i = 0; i < n; i++) {
+				long k = src[i];
+				dst[count[((int) (k >>> shift) & 0xFF) ^ flip]++] = k;
+			}
+			long[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		// an even number of passes leaves the result in a
+	}
+
+	/**
+	 * Sorts long keys in ascending order, with a digit width chosen from the
+	 * key range and the number of keys, and without the passes that would not
+	 * move any key. The result is the same as that of sort(long[]).
+	 *
+	 * @param a
+	 *            Keys to be sorted, sorted in place
+	 */
+	public void sortAdaptive(long[] a) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		}
+		long min = a[0], max = a[0];
+		for (int i = 1; i < n; i++) {
+			long k = a[i];
+			if (k < min) {
+				min = k;
+			} else if (k > max) {
+				max = k;
+			}
+		}
+		long range = max - min; // unsigned, keys - min are 0..range
+		if (range == 0) {
+			return;
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(range);
+		int width = width(n, bits);
+		int passes = (bits + width - 1) / width;
+		int size = 1 << width, mask = size - 1;
+
+		// all histograms in one pre-pass
+		if (counts.length < passes * size) {
+			counts = new int[passes * size];
+		} else {
+			Arrays.fill(counts, 0, passes * size, 0);
+		}
+		int[] counts = this.counts;
+		for (int i = 0; i < n; i++) {
+			long k = a[i] - min;
+			for (int p = 0, shift = 0; p < passes; p++, shift += width) {
+				counts[p * size + ((int) (k >>> shift) & mask)]++;
+			}
+		}
+
+		if (longBuf.length < n) {
+			longBuf = new long[n];
+		}
+		long[] src = a, dst = longBuf;
+		long first = a[0] - min;
+		for (int p = 0, shift = 0; p < passes; p++, shift += width) {
+			int off = p * size;
+			if (counts[off + ((int) (first >>> shift) & mask)] == n) {
+				continue; // one bucket holds every key
+			}
+			int sum = 0;
+			for (int d = off; d < off + size; d++) {
+				int c = counts[d];
+				counts[d] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < n; i++) {
+				long k = src[i];
+				dst[counts[off + ((int) ((k - min) >>> shift) & mask)]++] = k;
+			}
+			long[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if (src != a) { // an odd number of passes was made
+			System.arraycopy(src, 0, a, 0, n);
+		}
+	}
+
+	/**
+	 * Picks the digit width with the least estimated cost for n keys of a
+	 * number of bits. Every pass costs a read and a write per key, plus a
+	 * prefix sum over its buckets; with more than 2^11 buckets the bucket
+	 * fronts no longer fit in the L1 cache, so the writes cost more.
+	 */
+	private static int width(int n, int bits) {
+		int best = WIDTHS[0];
+		long bestCost = Long.MAX_VALUE;
+		for (int w : WIDTHS) {
+			long passes = (bits + w - 1) / w;
+			long cost = passes * ((long) n * (w > 11 ? 3 : 2) + (1 << w));
+			if (cost < bestCost) {
+				best = w;
+				bestCost = cost;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the k smallest keys, and returns them in ascending order. Only the
+	 * keys found are sorted, so for k much smaller than the number of keys
+	 * this is much faster than a full sort.
+	 *
+	 * @param a
+	 *            Keys, left as they are
+	 * @param k
+	 *            Number of keys wanted
+	 * @return The min(k, a.length) smallest keys, in ascending order
+	 * @throws IllegalArgumentException
+	 *             If k is negative
+	 */
+	public long[] smallest(long[] a, int k) throws IllegalArgumentException {
+		if (k < 0) {
+			throw new IllegalArgumentException("Negative number of keys: " + k);
+		}
+		long[] out = new long[Math.min(k, a.length)];
+		if (out.length == a.length) {
+			System.arraycopy(a, 0, out, 0, a.length);
+		} else {
+			select(a, a.length, out.length, out);
+		}
+		sortAdaptive(out);
+		return out;
+	}
+
+	/**
+	 * Copies the k smallest of the keys a[0..n) into out[0..k), in no
+	 * particular order, with an MSD radix select one byte at a time. The
+	 * candidates for the k-th key are kept in the long buffer, so out and a
+	 * must not be the long buffer.
+	 */
+	private void select(long[] a, int n, int k, long[] out) {
+		if (k == 0) {
+			return;
+		}
+		long min = a[0], max = a[0];
+		for (int i = 1; i < n; i++) {
+			long x = a[i];
+			if (x < min) {
+				min = x;
+			} else if (x > max) {
+				max = x;
+			}
+		}
+		if (longBuf.length < n) {
+			longBuf = new long[n];
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(max - min); // unsigned range
+		int shift = Math.max(bits - 1, 0) / 8 * 8;
+		long[] cand = a;
+		int m = n, filled = 0, need = k;
+		int[] count = this.count;
+		while (shift >= 0) {
+			Arrays.fill(count, 0);
+			for (int i = 0; i < m; i++) {
+				count[(int) ((cand[i] - min) >>> shift) & 0xFF]++;
+			}
+			// bucket b holds the k-th key, with below keys in smaller buckets
+			int b = 0, below = 0;
+			while (below + count[b] < need) {
+				below += count[b++];
+			}
+			boolean last = below + count[b] == need;
+			int j = 0;
+			for (int i = 0; i < m; i++) {
+				long x = cand[i];
+				int d = (int) ((x - min) >>> shift) & 0xFF;
+				if (d < b || (d == b && last)) {
+					out[filled++] = x;
+				} else if (d == b) {
+					longBuf[j++] = x;
+				}
+			}
+			if (last) {
+				return;
+			}
+			need -= below;
+			cand = longBuf;
+			m = j;
+			shift -= 8;
+		}
+		// the candidates left agree on every byte, so they are all equal
+		System.arraycopy(cand, 0, out, filled, need);
+	}
+
+	/**
+	 * Sorts long keys in ascending order, and moves the entries of a parallel
+	 * index array along with them, so that index[i] stays with keys[i]. The
+	 * sort is stable: entries with equal keys keep their order. If index holds
+	 * 0..n-1 on entry, it holds on return the position in the input of every
+	 * key in the output, such as the row id of every record.
+	 *
+	 * @param keys
+	 *            Keys to be sorted, sorted in place
+	 * @param index
+	 *            Int payload of every key, at least as long as keys, permuted in
+	 *            place
+	 */
+	public void sort(long[] keys, int[] index) {
+		int n = keys.length;
+		if (longBuf.length < n) {
+			longBuf = new long[n];
+		}
+		if (intBuf.length < n) {
+			intBuf = new int[n];
+		}
+		long[] src = keys, dst = longBuf;
+		int[] psrc = index, pdst = intBuf;
+		int[] count = this.count;
+		for (int shift = 0; shift < 64; shift += 8) {
+			int flip = shift == 56 ? 0x80 : 0; // sign bit of the top byte
+			histogram(src, n, shift, flip);
+			for (int i = 0; i < n; i++) {
+				long k = src[i];
+				int j = count[((int) (k >>> shift) & 0xFF) ^ flip]++;
+				dst[j] = k;
+				pdst[j] = psrc[i];
+			}
+			long[] tmp = src;
+			src = dst;
+			dst = tmp;
+			int[] ptmp = psrc;
+			psrc = pdst;
+			pdst = ptmp;
+		}
+		// an even number of passes leaves the result in keys and index
+	}
+
+	/**
+	 * Sorts long keys in ascending order, and moves the entries of a parallel
+	 * payload array along with them, so that payload[i] stays with keys[i].
+	 * The sort is stable: entries with equal keys keep their order.
+	 *
+	 * @param keys
+	 *            Keys to be sorted, sorted in place
+	 * @param payload
+	 *            Long payload of every key, at least as long as keys, permuted
+	 *            in place
+	 */
+	public void sort(long[] keys, long[] payload) {
+		int n = keys.length;
+		if (longBuf.length < n) {
+			longBuf = new long[n];
+		}
+		if (payloadBuf.length < n) {
+			payloadBuf = new long[n];
+		}
+		long[] src = keys, dst = longBuf;
+		long[] psrc = payload, pdst = payloadBuf;
+		int[] count = this.count;
+		for (int shift = 0; shift < 64; shift += 8) {
+			int flip = shift == 56 ? 0x80 : 0; // sign bit of the top byte
+			histogram(src, n, shift, flip);
+			for (int i = 0; i < n; i++) {
+				long k = src[i];
+				int j = count[((int) (k >>> shift) & 0xFF) ^ flip]++;
+				dst[j] = k;
+				pdst[j] = psrc[i];
+			}
+			long[] tmp = src;
+			src = dst;
+			dst = tmp;
+			tmp = psrc;
+			psrc = pdst;
+			pdst = tmp;
+		}
+		// an even number of passes leaves the result in keys and payload
+	}
+
+	/**
+	 * Counts the bytes of the keys at a shift, and turns the counts into
+	 * bucket start positions
+	 */
+	private void histogram(long[] src, int n, int shift, int flip) {
+		int[] count = this.count;
+		Arrays.fill(count, 0);
+		for (int i = 0; i < n; i++) {
+			count[((int) (src[i] >>> shift) & 0xFF) ^ flip]++;
+		}
+		int sum = 0;
+		for (int d = 0; d < BUCKETS; d++) {
+			int c = count[d];
+			count[d] = sum;
+			sum += c;
+		}
+	}
+
+	/**
+	 * Collects the k smallest of a stream of long keys, in memory bounded by
+	 * k. Keys are added to a buffer of 2k keys; whenever the buffer fills up,
+	 * the k smallest keys in it are selected and the others are dropped. The
+	 * largest key kept is then a bound, and later keys that are not below it
+	 * are dropped right away.
+	 */
+	public static class TopN {
+
+		/**
+		 * Number of keys wanted
+		 */
+		private int k;
+
+		/**
+		 * Keys kept so far, and the scratch array they are selected into
+		 */
+		private long[] buf, tmp;
+
+		/**
+		 * Number of keys in buf
+		 */
+		private int size;
+
+		/**
+		 * True once k keys have been selected, after which keys that are not
+		 * below bound are dropped
+		 */
+		private boolean bounded;
+
+		/**
+		 * Largest of the k keys selected last
+		 */
+		private long bound;
+
+		/**
+		 * Sorter for the selections and the result
+		 */
+		private PrimitiveRadixsort sorter;
+
+		/**
+		 * Initializes this collector, with no keys yet
+		 *
+		 * @param k
+		 *            Number of keys wanted
+		 * @throws IllegalArgumentException
+		 *             If k is negative
+		 */
+		public TopN(int k) throws IllegalArgumentException {
+			if (k < 0) {
+				throw new IllegalArgumentException("Negative number of keys: " + k);
+			}
+			this.k = k;
+			buf = new long[Math.max(2 * k, 1)];
+			tmp = new long[k];
+			sorter = new PrimitiveRadixsort();
+		}
+
+		/**
+		 * Adds a key to the stream
+		 *
+		 * @param key
+		 *            Key
+		 */
+		public void add(long key) {
+			if (k == 0 || (bounded && key >= bound)) {
+				return;
+			}
+			if (size == buf.length) {
+				compact();
+			}
+			buf[size++] = key;
+		}
+
+		/**
+		 * Gives the k smallest keys added so far, or all of them if fewer
+		 * were added
+		 *
+		 * @return Smallest keys, in ascending order
+		 */
+		public long[] result() {
+			return sorter.smallest(Arrays.copyOf(buf, size), k);
+		}
+
+		/**
+		 * Keeps only the k smallest keys in the buffer
+		 */
+		private void compact() {
+			sorter.select(buf, size, k, tmp);
+			System.arraycopy(tmp, 0, buf, 0, k);
+			size = k;
+			bound = tmp[0];
+			for (int i = 1; i < k; i++) {
+				bound = Math.max(bound, tmp[i]);
+			}
+			bounded = true;
+		}
+	}
+}
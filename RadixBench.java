@@ -0,0 +1,899 @@
+package apps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import structures.Bench;
+import structures.Node;
+
+/**
+ * This class times the radix sorts against each other and against
+ * Arrays.sort, on random keys from a seeded generator. It is run as
+ *
+ * <pre>
+ * java apps.RadixBench mode [count] [seed]
+ * </pre>
+ *
+ * where mode is keys, for the primitive key sorts against the linked list
+ * sort(Scanner) and Arrays.sort, external, for ExternalRadixsort on a file
+ * that may be many times larger than the heap, payload, for the stable sorts
+ * of (key, row id) pairs, gc, for the memory allocated and the garbage
+ * collections of sort(Scanner), parallel, for the scaling of
+ * ParallelRadixsort with the number of threads, parse, for the reading of a
+ * file of keys with RadixInput against Scanner, strings, for StringRadixsort
+ * against Arrays.sort on URLs and log lines, signed, for the sorts of keys
+ * and fixed point items of both signs, adaptive, for the adaptive sorts
+ * against the fixed ones on narrow, clustered and random keys, or topn, for
+ * the time to find the N smallest keys against the number N wanted.
+ */
+public class RadixBench {
+
+	/**
+	 * Times the primitive key sorts against sort(Scanner) and Arrays.sort.
+	 * The sorts of the input file read and parse it in every run; the array
+	 * sorts get the keys already parsed, and copy them in an untimed setup.
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the keys
+	 */
+	static void keys(final int n, long seed) {
+		Random random = new Random(seed);
+		final long[] longs = new long[n];
+		final int[] ints = new int[n];
+		StringBuilder sb = new StringBuilder(n * 12);
+		sb.append("10\n");
+		for (int i = 0; i < n; i++) {
+			longs[i] = random.nextLong() >>> 24; // ids up to 2^40
+			ints[i] = random.nextInt();
+			sb.append(longs[i]).append('\n');
+		}
+		final String input = sb.toString();
+		final long[] longWork = new long[n];
+		final int[] intWork = new int[n];
+		final PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+
+		report("Radixsort.sort(Scanner)", n, Bench.time(new Bench.Task() {
+			public long run() {
+				try {
+					Node<String> rear = new Radixsort().sort(new Scanner(input));
+					return rear.data.length();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}, 1, 3));
+		report("Radixsort.sortKeys(Scanner)", n, Bench.time(new Bench.Task() {
+			public long run() {
+				try {
+					return new Radixsort().sortKeys(new Scanner(input))[n - 1];
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}, 1, 3));
+		Bench.Task copyLongs = new Bench.Task() {
+			public void setup() {
+				System.arraycopy(longs, 0, longWork, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(longWork);
+				return longWork[n - 1];
+			}
+		};
+		report("PrimitiveRadixsort.sort(long[])", n, Bench.time(copyLongs, 5, 11));
+		report("PrimitiveRadixsort.sortAdaptive(long[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(longs, 0, longWork, 0, n);
+			}
+
+			public long run() {
+				sorter.sortAdaptive(longWork);
+				return longWork[n - 1];
+			}
+		}, 5, 11));
+		report("Arrays.sort(long[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(longs, 0, longWork, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(longWork);
+				return longWork[n - 1];
+			}
+		}, 5, 11));
+		report("PrimitiveRadixsort.sort(int[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(ints, 0, intWork, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(intWork);
+				return intWork[n - 1];
+			}
+		}, 5, 11));
+		report("Arrays.sort(int[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(ints, 0, intWork, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(intWork);
+				return intWork[n - 1];
+			}
+		}, 5, 11));
+	}
+
+	/**
+	 * Sorts a file of random keys with ExternalRadixsort, with an eighth of
+	 * the max heap as the memory budget, reports its I/O throughput, and
+	 * checks that the output is in order
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the keys
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	static void external(long n, long seed) throws IOException {
+		File in = File.createTempFile("radix-in", ".txt"), out = File.createTempFile("radix-out", ".txt");
+		try {
+			Random random = new Random(seed);
+			BufferedWriter w = new BufferedWriter(new FileWriter(in), 1 << 16);
+			try {
+				w.write("10\n");
+				for (long i = 0; i < n; i++) {
+					w.write(Long.toString(random.nextLong() >>> 24));
+					w.write('\n');
+				}
+			} finally {
+				w.close();
+			}
+			long heap = Runtime.getRuntime().maxMemory();
+			System.out.println(String.format("input %,d bytes, %.1f times the max heap of %,d bytes", in.length(),
+					(double) in.length() / heap, heap));
+
+			ExternalRadixsort.Report report = ExternalRadixsort.sort(in.getPath(), out.getPath(), heap / 8,
+					null);
+			System.out.println(report);
+
+			BufferedReader r = new BufferedReader(new FileReader(out), 1 << 16);
+			try {
+				long count = 0, last = Long.MIN_VALUE;
+				String line;
+				while ((line = r.readLine()) != null) {
+					long key = Long.parseLong(line);
+					if (key < last) {
+						throw new IOException("Out of order at line " + (count + 1));
+					}
+					last = key;
+					count++;
+				}
+				if (count != n) {
+					throw new IOException("Sorted " + count + " keys of " + n);
+				}
+			} finally {
+				r.close();
+			}
+			System.out.println("output in order");
+		} finally {
+			in.delete();
+			out.delete();
+		}
+	}
+
+	/**
+	 * Times the stable sorts of keys with an int row id, and with a long
+	 * payload, against Arrays.sort of the keys packed with their row ids into
+	 * longs. The keys are below 2^36, so that a key and a row id below 2^27
+	 * fit in a long. Every run gets the same keys, made again from the seed in
+	 * an untimed setup, so that no copy of the input is held.
+	 *
+	 * @param n
+	 *            Number of pairs, below 2^27
+	 * @param seed
+	 *            Seed of the keys
+	 * @throws IllegalArgumentException
+	 *             If there are too many pairs to pack
+	 */
+	static void payload(final int n, final long seed) throws IllegalArgumentException {
+		if (n >= 1 << 27) {
+			throw new IllegalArgumentException("Too many pairs: " + n);
+		}
+		final PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+		final long[] keys = new long[n];
+		final int[] index = new int[n];
+		report("PrimitiveRadixsort.sort(long[], int[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				fill(keys, seed);
+				for (int i = 0; i < n; i++) {
+					index[i] = i;
+				}
+			}
+
+			public long run() {
+				sorter.sort(keys, index);
+				return index[n - 1];
+			}
+		}, 1, 3));
+
+		final long[] payload = new long[n];
+		report("PrimitiveRadixsort.sort(long[], long[])", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				fill(keys, seed);
+				for (int i = 0; i < n; i++) {
+					payload[i] = i;
+				}
+			}
+
+			public long run() {
+				sorter.sort(keys, payload);
+				return payload[n - 1];
+			}
+		}, 1, 3));
+
+		report("Arrays.sort(long[]) of key << 27 | row", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				fill(keys, seed);
+				for (int i = 0; i < n; i++) {
+					keys[i] = keys[i] << 27 | i;
+				}
+			}
+
+			public long run() {
+				Arrays.sort(keys);
+				return keys[n - 1];
+			}
+		}, 1, 3));
+	}
+
+	/**
+	 * Profiles the allocation and the garbage collections of
+	 * Radixsort.sort(Scanner), against those of reading the same input into
+	 * the master list alone. The difference is what the scatter and gather
+	 * passes allocate, which should be nothing but the bucket array, since
+	 * they relink the nodes of the master list.
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the keys
+	 */
+	static void gc(int n, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(n * 12);
+		sb.append("10\n");
+		for (int i = 0; i < n; i++) {
+			sb.append(random.nextLong() >>> 24).append('\n');
+		}
+		final String input = sb.toString();
+		sb = null;
+
+		profile("createMasterListFromInput", n, new Bench.Task() {
+			public long run() {
+				try {
+					Radixsort r = new Radixsort();
+					Scanner sc = new Scanner(input);
+					sc.nextInt();
+					r.createMasterListFromInput(sc);
+					return r.masterListRear.data.length();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+		profile("Radixsort.sort(Scanner)", n, new Bench.Task() {
+			public long run() {
+				try {
+					return new Radixsort().sort(new Scanner(input)).data.length();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Times a task over 3 runs after a warmup, and prints the bytes it
+	 * allocated and the garbage collections and their time, per run. The
+	 * allocated bytes are those of the current thread, where the JVM can
+	 * count them.
+	 */
+	private static void profile(String name, long n, Bench.Task task) {
+		final int runs = 3;
+		Bench.time(task, 1, 1);
+		long bytes = allocatedBytes(), collections = 0, gcMillis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			collections -= gc.getCollectionCount();
+			gcMillis -= gc.getCollectionTime();
+		}
+		Bench.Result result = Bench.time(task, 0, runs);
+		bytes = bytes < 0 ? -1 : allocatedBytes() - bytes;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			collections += gc.getCollectionCount();
+			gcMillis += gc.getCollectionTime();
+		}
+		report(name, n, result);
+		System.out.println(String.format("  %,d bytes allocated, %.1f per key, %.1f collections, %.1f ms in GC, per run",
+				bytes / runs, (double) bytes / runs / n, (double) collections / runs, (double) gcMillis / runs));
+	}
+
+	/**
+	 * Gives the number of bytes allocated by the current thread so far, or -1
+	 * if the JVM does not count them
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) threads;
+			if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled()) {
+				return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Times ParallelRadixsort on random decimal strings with pools of 1, 2, 4
+	 * and so on threads, up to twice the number of processors, and prints the
+	 * speedup over a single thread
+	 *
+	 * @param n
+	 *            Number of items
+	 * @param seed
+	 *            Seed of the items
+	 */
+	static void parallel(final int n, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		final String[] items = new String[n];
+		for (int i = 0; i < n; i++) {
+			items[i] = Long.toString(random.nextLong() >>> 24);
+		}
+		final String[] work = new String[n];
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println(processors + " processors");
+		long single = 0;
+		for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				final ParallelRadixsort sorter = new ParallelRadixsort(pool);
+				Bench.Result result = Bench.time(new Bench.Task() {
+					public void setup() {
+						System.arraycopy(items, 0, work, 0, n);
+					}
+
+					public long run() {
+						sorter.sort(work, 10);
+						return work[n - 1].length();
+					}
+				}, 3, 7);
+				if (threads == 1) {
+					single = result.medianNanos;
+				}
+				report("ParallelRadixsort, " + threads + " threads", n, result);
+				System.out.println(String.format("  speedup %.2f", (double) single / result.medianNanos));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Times the parsing of a file of random decimal keys, one per line, by
+	 * RadixInput, from a file channel and from a mapped buffer, against
+	 * Scanner and Long.parseLong. Scanner is slow enough that it only parses
+	 * the first 10,000,000 lines of a larger file.
+	 *
+	 * @param n
+	 *            Number of lines of keys
+	 * @param seed
+	 *            Seed of the keys
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	static void parse(final long n, long seed) throws IOException {
+		final File in = File.createTempFile("radix-in", ".txt");
+		try {
+			SplittableRandom random = new SplittableRandom(seed);
+			BufferedWriter w = new BufferedWriter(new FileWriter(in), 1 << 16);
+			try {
+				w.write("10\n");
+				for (long i = 0; i < n; i++) {
+					w.write(Long.toString(random.nextLong() >>> 24));
+					w.write('\n');
+				}
+			} finally {
+				w.close();
+			}
+			final long bytes = in.length();
+			System.out.println(String.format("%,d lines, %,d bytes", n, bytes));
+
+			parsed("RadixInput.read(FileChannel)", n, bytes, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						RandomAccessFile raf = new RandomAccessFile(in, "r");
+						try {
+							return RadixInput.read(raf.getChannel()).keys().length;
+						} finally {
+							raf.close();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+			if (bytes <= Integer.MAX_VALUE) {
+				parsed("RadixInput.read(mapped ByteBuffer)", n, bytes, Bench.time(new Bench.Task() {
+					public long run() {
+						try {
+							RandomAccessFile raf = new RandomAccessFile(in, "r");
+							try {
+								FileChannel ch = raf.getChannel();
+								return RadixInput.read(ch.map(FileChannel.MapMode.READ_ONLY, 0, bytes)).keys().length;
+							} finally {
+								raf.close();
+							}
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}, 1, 3));
+			}
+
+			final long lines = Math.min(n, 10000000);
+			parsed("Scanner, Long.parseLong", lines, bytes * lines / Math.max(1, n), Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						Scanner sc = new Scanner(new BufferedReader(new FileReader(in), 1 << 16));
+						try {
+							int radix = sc.nextInt();
+							long sum = 0;
+							for (long i = 0; i < lines; i++) {
+								sum += Long.parseLong(sc.next(), radix);
+							}
+							return sum;
+						} finally {
+							sc.close();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+		} finally {
+			in.delete();
+		}
+	}
+
+	/**
+	 * Prints the times of a parse, and the lines and megabytes parsed per
+	 * second
+	 */
+	private static void parsed(String name, long lines, long bytes, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.0f lines/s, %,.1f MB/s", name, result,
+				result.perSecond(lines), result.perSecond(bytes) / (1 << 20)));
+	}
+
+	/**
+	 * Times StringRadixsort against Arrays.sort on URLs and on log lines, which
+	 * have long common prefixes: URLs share their scheme, a few hundred hosts
+	 * and a small vocabulary of path segments, and log lines start with a
+	 * timestamp of the same day. Both sorts must give the same order.
+	 *
+	 * @param n
+	 *            Number of strings
+	 * @param seed
+	 *            Seed of the strings
+	 * @throws IllegalStateException
+	 *             If the sorts give different orders
+	 */
+	static void strings(int n, long seed) throws IllegalStateException {
+		String[] words = { "api", "v1", "v2", "users", "orders", "items", "search", "static", "img", "css",
+				"account", "cart", "checkout", "product", "category", "reviews" };
+		String[] levels = { "DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR" };
+		String[] components = { "http.server", "db.pool", "cache", "auth", "scheduler", "mailer" };
+		SplittableRandom random = new SplittableRandom(seed);
+		String[] urls = new String[n], logs = new String[n];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.setLength(0);
+			sb.append("https://www.shop").append(random.nextInt(300)).append(".example.com");
+			for (int k = random.nextInt(1, 5); k > 0; k--) {
+				sb.append('/').append(words[random.nextInt(words.length)]);
+			}
+			sb.append('/').append(random.nextInt(1000000));
+			if (random.nextBoolean()) {
+				sb.append("?page=").append(random.nextInt(50));
+			}
+			urls[i] = sb.toString();
+
+			int millis = random.nextInt(86400000);
+			sb.setLength(0);
+			sb.append(String.format("2026-10-19T%02d:%02d:%02d.%03dZ", millis / 3600000, millis / 60000 % 60,
+					millis / 1000 % 60, millis % 1000));
+			sb.append(" host-").append(random.nextInt(64)).append(' ').append(levels[random.nextInt(levels.length)])
+					.append(' ').append(components[random.nextInt(components.length)]).append(": request ")
+					.append(random.nextInt(1 << 30));
+			logs[i] = sb.toString();
+		}
+		System.out.println("URL: " + urls[0]);
+		strings("URLs", urls);
+		System.out.println("log: " + logs[0]);
+		strings("log lines", logs);
+	}
+
+	/**
+	 * Times StringRadixsort against Arrays.sort on one set of strings
+	 */
+	private static void strings(String name, final String[] items) throws IllegalStateException {
+		final int n = items.length;
+		final String[] work = new String[n], sorted = new String[n];
+		final StringRadixsort sorter = new StringRadixsort();
+		report("StringRadixsort.sort, " + name, n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(items, 0, work, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(work);
+				return work[n - 1].length();
+			}
+		}, 3, 7));
+		System.arraycopy(work, 0, sorted, 0, n);
+		report("Arrays.sort, " + name, n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(items, 0, work, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(work);
+				return work[n - 1].length();
+			}
+		}, 3, 7));
+		if (!Arrays.equals(work, sorted)) {
+			throw new IllegalStateException("StringRadixsort and Arrays.sort differ on " + name);
+		}
+	}
+
+	/**
+	 * Times the sorts of items of both signs, half of them negative: the
+	 * linked list sort(Scanner) and sortKeys(FileChannel, 2) on fixed point
+	 * items with two digits after the point, such as -1234.56, and the
+	 * primitive sorts of signed long and int keys against Arrays.sort. The
+	 * order of the sort(Scanner) result is checked.
+	 *
+	 * @param n
+	 *            Number of items
+	 * @param seed
+	 *            Seed of the items
+	 * @throws IOException
+	 *             If there is an error reading or writing, or the sort(Scanner)
+	 *             result is out of order
+	 */
+	static void signed(final int n, long seed) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+		final long[] longs = new long[n];
+		final int[] ints = new int[n];
+		StringBuilder sb = new StringBuilder(n * 12);
+		sb.append("10\n");
+		for (int i = 0; i < n; i++) {
+			long cents = random.nextLong(-10000000000L, 10000000000L);
+			longs[i] = cents;
+			ints[i] = random.nextInt();
+			long abs = Math.abs(cents);
+			sb.append(cents < 0 ? "-" : "").append(abs / 100).append('.').append(abs % 100 < 10 ? "0" : "")
+					.append(abs % 100).append('\n');
+		}
+		final String input = sb.toString();
+		sb = null;
+		final File in = File.createTempFile("radix-in", ".txt");
+		try {
+			BufferedWriter w = new BufferedWriter(new FileWriter(in), 1 << 16);
+			try {
+				w.write(input);
+			} finally {
+				w.close();
+			}
+
+			final Node<?>[] rear = new Node<?>[1];
+			report("Radixsort.sort(Scanner), fixed point", n, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						Node<String> r = new Radixsort().sort(new Scanner(input));
+						rear[0] = r;
+						return r.data.length();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+			long last = Long.MIN_VALUE;
+			Node<?> ptr = rear[0];
+			do {
+				ptr = ptr.next;
+				long key = Long.parseLong(((String) ptr.data).replace(".", ""));
+				if (key < last) {
+					throw new IOException("Out of order: " + ptr.data);
+				}
+				last = key;
+			} while (ptr != rear[0]);
+			rear[0] = null;
+
+			report("Radixsort.sortKeys(FileChannel, 2)", n, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						RandomAccessFile raf = new RandomAccessFile(in, "r");
+						try {
+							return new Radixsort().sortKeys(raf.getChannel(), 2)[n - 1];
+						} finally {
+							raf.close();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 3, 7));
+		} finally {
+			in.delete();
+		}
+
+		final long[] longWork = new long[n];
+		final int[] intWork = new int[n];
+		final PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+		report("PrimitiveRadixsort.sort(long[]), signed", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(longs, 0, longWork, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(longWork);
+				return longWork[n - 1];
+			}
+		}, 5, 11));
+		report("Arrays.sort(long[]), signed", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(longs, 0, longWork, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(longWork);
+				return longWork[n - 1];
+			}
+		}, 5, 11));
+		report("PrimitiveRadixsort.sort(int[]), signed", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(ints, 0, intWork, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(intWork);
+				return intWork[n - 1];
+			}
+		}, 5, 11));
+		report("Arrays.sort(int[]), signed", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(ints, 0, intWork, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(intWork);
+				return intWork[n - 1];
+			}
+		}, 5, 11));
+	}
+
+	/**
+	 * Times sortAdaptive against sort and Arrays.sort, for the primitive keys
+	 * and for the linked list of items, on three distributions: narrow keys,
+	 * within 2^16 of a base near 2^40, for which most passes are skipped;
+	 * clustered keys, in 16 clusters of width 2^10 spread over 2^40, for
+	 * which the range is wide but the low digits vary; and random keys below
+	 * 2^40, for which there is nothing to skip.
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the keys
+	 */
+	static void adaptive(final int n, long seed) {
+		String[] names = { "narrow", "clustered", "random" };
+		for (int kind = 0; kind < names.length; kind++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			final long[] keys = new long[n];
+			long base = 1L << 40;
+			StringBuilder sb = new StringBuilder(n * 14);
+			sb.append("10\n");
+			for (int i = 0; i < n; i++) {
+				if (kind == 0) {
+					keys[i] = base + random.nextInt(1 << 16);
+				} else if (kind == 1) {
+					keys[i] = ((long) random.nextInt(16) << 36) + random.nextInt(1 << 10);
+				} else {
+					keys[i] = random.nextLong(1L << 40);
+				}
+				sb.append(keys[i]).append('\n');
+			}
+			final String input = sb.toString();
+			sb = null;
+			final long[] work = new long[n];
+			final PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+
+			report("PrimitiveRadixsort.sort, " + names[kind], n, Bench.time(new Bench.Task() {
+				public void setup() {
+					System.arraycopy(keys, 0, work, 0, n);
+				}
+
+				public long run() {
+					sorter.sort(work);
+					return work[n - 1];
+				}
+			}, 5, 11));
+			report("PrimitiveRadixsort.sortAdaptive, " + names[kind], n, Bench.time(new Bench.Task() {
+				public void setup() {
+					System.arraycopy(keys, 0, work, 0, n);
+				}
+
+				public long run() {
+					sorter.sortAdaptive(work);
+					return work[n - 1];
+				}
+			}, 5, 11));
+			report("Arrays.sort(long[]), " + names[kind], n, Bench.time(new Bench.Task() {
+				public void setup() {
+					System.arraycopy(keys, 0, work, 0, n);
+				}
+
+				public long run() {
+					Arrays.sort(work);
+					return work[n - 1];
+				}
+			}, 5, 11));
+			report("Radixsort.sort(Scanner), " + names[kind], n, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						return new Radixsort().sort(new Scanner(input)).data.length();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+			report("Radixsort.sortAdaptive(Scanner), " + names[kind], n, Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						return new Radixsort().sortAdaptive(new Scanner(input)).data.length();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+		}
+	}
+
+	/**
+	 * Times the search for the N smallest keys, for N from 10 up to all the
+	 * keys, by PrimitiveRadixsort.smallest on an array and by the TopN
+	 * collector on a stream of keys, against a full sort by sort(long[]) and
+	 * Arrays.sort. The time of a run is the latency of one query.
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the keys
+	 */
+	static void topN(final int n, long seed) {
+		final long[] keys = new long[n];
+		fill(keys, seed);
+		final long[] work = new long[n];
+		final PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+		report("PrimitiveRadixsort.sort(long[]), full", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(keys, 0, work, 0, n);
+			}
+
+			public long run() {
+				sorter.sort(work);
+				return work[n - 1];
+			}
+		}, 5, 11));
+		report("Arrays.sort(long[]), full", n, Bench.time(new Bench.Task() {
+			public void setup() {
+				System.arraycopy(keys, 0, work, 0, n);
+			}
+
+			public long run() {
+				Arrays.sort(work);
+				return work[n - 1];
+			}
+		}, 5, 11));
+		for (long k = 10; k <= n; k *= 10) {
+			final int top = (int) k;
+			report("PrimitiveRadixsort.smallest, N = " + top, n, Bench.time(new Bench.Task() {
+				public long run() {
+					return sorter.smallest(keys, top)[top - 1];
+				}
+			}, 5, 11));
+			report("PrimitiveRadixsort.TopN, N = " + top, n, Bench.time(new Bench.Task() {
+				public long run() {
+					PrimitiveRadixsort.TopN t = new PrimitiveRadixsort.TopN(top);
+					for (int i = 0; i < n; i++) {
+						t.add(keys[i]);
+					}
+					return t.result()[top - 1];
+				}
+			}, 5, 11));
+		}
+	}
+
+	/**
+	 * Fills an array with random keys below 2^36
+	 */
+	private static void fill(long[] keys, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong() >>> 28;
+		}
+	}
+
+	/**
+	 * Prints the times of a sort, and the keys sorted per second
+	 */
+	private static void report(String name, long n, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.0f keys/s", name, result, result.perSecond(n)));
+	}
+
+	/**
+	 * Runs a benchmark. The arguments are the mode, the number of keys, which
+	 * defaults to 1000000, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Mode, number of keys, seed
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = args.length > 0 ? args[0] : "keys";
+		long n = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		if (mode.equals("keys")) {
+			keys((int) n, seed);
+		} else if (mode.equals("external")) {
+			external(n, seed);
+		} else if (mode.equals("payload")) {
+			payload((int) n, seed);
+		} else if (mode.equals("gc")) {
+			gc((int) n, seed);
+		} else if (mode.equals("parallel")) {
+			parallel((int) n, seed);
+		} else if (mode.equals("parse")) {
+			parse(n, seed);
+		} else if (mode.equals("strings")) {
+			strings((int) n, seed);
+		} else if (mode.equals("signed")) {
+			signed((int) n, seed);
+		} else if (mode.equals("adaptive")) {
+			adaptive((int) n, seed);
+		} else if (mode.equals("topn")) {
+			topN((int) n, seed);
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package apps;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Scanner;
+
+import structures.Node;
+
+/**
+ * This class checks the radix sorts against each other and against
+ * Arrays.sort on many random inputs from a seeded generator, and throws an
+ * exception at the first input on which they disagree. It is run as
+ *
+ * <pre>
+ * java apps.RadixCheck [inputs] [seed]
+ * </pre>
+ */
+public class RadixCheck {
+
+	/**
+	 * Checks PrimitiveRadixsort.sort and sortAdaptive against Arrays.sort on
+	 * random, narrow, clustered and extreme long keys, and sort on int keys
+	 *
+	 * @param random
+	 *            Source of the keys
+	 * @param big
+	 *            True for a large input, so that every pass has full buckets
+	 * @throws IllegalStateException
+	 *             If a sort differs from Arrays.sort
+	 */
+	static void primitive(Random random, boolean big) throws IllegalStateException {
+		PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+		int n = random.nextInt(big ? 300000 : 3000);
+		long[] keys = keys(random, n, random.nextInt(4));
+		long[] expected = keys.clone(), actual = keys.clone();
+		Arrays.sort(expected);
+		sorter.sort(actual);
+		same("PrimitiveRadixsort.sort(long[])", expected, actual);
+		actual = keys.clone();
+		sorter.sortAdaptive(actual);
+		same("PrimitiveRadixsort.sortAdaptive(long[])", expected, actual);
+
+		int[] ints = new int[n];
+		for (int i = 0; i < n; i++) {
+			ints[i] = random.nextInt() >> random.nextInt(32);
+		}
+		int[] sorted = ints.clone();
+		Arrays.sort(sorted);
+		sorter.sort(ints);
+		if (!Arrays.equals(sorted, ints)) {
+			throw new IllegalStateException("PrimitiveRadixsort.sort(int[]) differs from Arrays.sort");
+		}
+	}
+
+	/**
+	 * Checks PrimitiveRadixsort.smallest and the TopN collector against the
+	 * front of the keys sorted by Arrays.sort, for any number of keys wanted
+	 * up to a few more than there are, and Radixsort.smallestKeys on an input
+	 * file of signed items
+	 *
+	 * @param random
+	 *            Source of the keys
+	 * @throws IOException
+	 *             If there is an error reading the input
+	 * @throws IllegalStateException
+	 *             If a result differs from the sorted keys, or smallest changes
+	 *             its input
+	 */
+	static void topN(Random random) throws IOException, IllegalStateException {
+		PrimitiveRadixsort sorter = new PrimitiveRadixsort();
+		int n = random.nextInt(5000);
+		long[] keys = keys(random, n, random.nextInt(4));
+		long[] copy = keys.clone(), sorted = keys.clone();
+		Arrays.sort(sorted);
+		int k = random.nextInt(n + 10);
+		long[] expected = Arrays.copyOf(sorted, Math.min(k, n));
+		same("PrimitiveRadixsort.smallest", expected, sorter.smallest(keys, k));
+		if (!Arrays.equals(copy, keys)) {
+			throw new IllegalStateException("PrimitiveRadixsort.smallest changed its input");
+		}
+		PrimitiveRadixsort.TopN top = new PrimitiveRadixsort.TopN(k);
+		for (long key : keys) {
+			top.add(key);
+		}
+		same("PrimitiveRadixsort.TopN", expected, top.result());
+
+		StringBuilder sb = new StringBuilder("16\n");
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt(100000) - 500;
+			sb.append(Long.toString(keys[i], 16)).append('\n');
+		}
+		Arrays.sort(keys);
+		same("Radixsort.smallestKeys", Arrays.copyOf(keys, Math.min(k, n)),
+				new Radixsort().smallestKeys(new Scanner(sb.toString()), k));
+	}
+
+	/**
+	 * Makes keys of a kind: 0 for random keys of all sizes and both signs, 1
+	 * for a narrow range, 2 for a few clusters far apart, 3 for keys at the
+	 * ends of the long range
+	 */
+	static long[] keys(Random random, int n, int kind) {
+		long[] keys = new long[n];
+		long base = random.nextLong();
+		for (int i = 0; i < n; i++) {
+			switch (kind) {
+			case 0:
+				keys[i] = random.nextLong() >> random.nextInt(64);
+				break;
+			case 1:
+				keys[i] = base + random.nextInt(1000);
+				break;
+			case 2:
+				keys[i] = ((long) random.nextInt(4) << 40) + random.nextInt(100) - 50;
+				break;
+			default:
+				keys[i] = random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE - random.nextInt(3);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Checks Radixsort.sort and sortAdaptive on items in a random radix from 2
+	 * to 36, which may be signed, may be fixed point decimals, and may share a
+	 * prefix: both must give the same list, in which the items are in numeric
+	 * order and are those of the input
+	 *
+	 * @param random
+	 *            Source of the items
+	 * @param round
+	 *            Number of the round, which picks the kinds of items
+	 * @throws IOException
+	 *             If there is an error reading the input
+	 * @throws IllegalStateException
+	 *             If the sorts differ, or a result is wrong
+	 */
+	static void list(Random random, int round) throws IOException, IllegalStateException {
+		int radix = Character.MIN_RADIX + random.nextInt(Character.MAX_RADIX - Character.MIN_RADIX + 1);
+		int n = 1 + random.nextInt(200);
+		String prefix = round % 2 == 0 ? Long.toString(random.nextInt(50), radix) : "";
+		ArrayList<String> items = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder().append(radix).append('\n');
+		for (int i = 0; i < n; i++) {
+			String s = prefix + Long.toString(random.nextInt(1 + random.nextInt(100000)), radix);
+			if (round % 3 == 0 && random.nextBoolean()) {
+				s += ".";
+				for (int k = random.nextInt(4); k > 0; k--) {
+					s += Character.forDigit(random.nextInt(radix), radix);
+				}
+			}
+			if (round % 5 == 0 || (round % 7 == 0 && random.nextBoolean())) {
+				s = "-" + s;
+			}
+			items.add(s);
+			sb.append(s).append('\n');
+		}
+		String input = sb.toString();
+		ArrayList<String> sorted = list(new Radixsort().sort(new Scanner(input)));
+		ArrayList<String> adaptive = list(new Radixsort().sortAdaptive(new Scanner(input)));
+		if (!sorted.equals(adaptive)) {
+			throw new IllegalStateException("Radixsort.sort and sortAdaptive differ on " + items);
+		}
+		for (int i = 1; i < n; i++) {
+			if (value(sorted.get(i - 1), radix).compareTo(value(sorted.get(i), radix)) > 0) {
+				throw new IllegalStateException("Radixsort.sort out of order: " + sorted);
+			}
+		}
+		Collections.sort(items);
+		Collections.sort(sorted);
+		if (!items.equals(sorted)) {
+			throw new IllegalStateException("Radixsort.sort lost or added items: " + sorted);
+		}
+	}
+
+	/**
+	 * Gives the items of a circular list, from the front
+	 */
+	private static ArrayList<String> list(Node<String> rear) {
+		ArrayList<String> items = new ArrayList<String>();
+		Node<String> ptr = rear;
+		do {
+			ptr = ptr.next;
+			items.add(ptr.data);
+		} while (ptr != rear);
+		return items;
+	}
+
+	/**
+	 * Gives the exact value of a signed fixed point item in a radix
+	 */
+	static BigDecimal value(String s, int radix) {
+		boolean negative = s.startsWith("-");
+		String t = s.startsWith("-") || s.startsWith("+") ? s.substring(1) : s;
+		int point = t.indexOf('.');
+		String whole = point < 0 ? t : t.substring(0, point), frac = point < 0 ? "" : t.substring(point + 1);
+		BigDecimal value = new BigDecimal(whole.isEmpty() ? BigInteger.ZERO : new BigInteger(whole, radix));
+		BigDecimal unit = BigDecimal.ONE;
+		for (int i = 0; i < frac.length(); i++) {
+			unit = unit.divide(BigDecimal.valueOf(radix), 60, RoundingMode.HALF_EVEN);
+			value = value.add(unit.multiply(BigDecimal.valueOf(Character.digit(frac.charAt(i), radix))));
+		}
+		return negative ? value.negate() : value;
+	}
+
+	/**
+	 * Throws an exception if a sort result differs from Arrays.sort
+	 */
+	private static void same(String name, long[] expected, long[] actual) throws IllegalStateException {
+		if (!Arrays.equals(expected, actual)) {
+			throw new IllegalStateException(name + " differs from Arrays.sort on " + actual.length + " keys");
+		}
+	}
+
+	/**
+	 * Runs the checks. The arguments are the number of inputs per check, which
+	 * defaults to 300, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Number of inputs, seed
+	 * @throws IOException
+	 *             If there is an error reading an input
+	 */
+	public static void main(String[] args) throws IOException {
+		int inputs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		for (int i = 0; i < inputs; i++) {
+			primitive(random, i % 50 == 0);
+		}
+		System.out.println("PrimitiveRadixsort ok");
+		for (int i = 0; i < inputs; i++) {
+			topN(random);
+		}
+		System.out.println("smallest and TopN ok");
+		for (int i = 0; i < inputs; i++) {
+			list(random, i);
+		}
+		System.out.println("Radixsort.sort and sortAdaptive ok");
+	}
+}
@@ -0,0 +1,258 @@
+package apps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class reads the input of a radix sort - the radix, then the items -
+ * straight from bytes, without Scanner. Items are split on whitespace, every
+ * character is checked to be a digit in the declared radix, and every item is
+ * converted to a long key as its digits go by, so that no String is made for
+ * it. The keys are collected in a long array, ready for PrimitiveRadixsort.
+ *
+ * Items may have a leading sign. If a scale is given, items may also be fixed
+ * point decimals with up to scale digits after the point, and every key is
+ * the item's value times radix^scale; for instance with radix 10 and scale 2,
+ * "-3.5" is read as -350.
+ */
+public class RadixInput {
+
+	/**
+	 * Size of the buffer used to read from a file channel
+	 */
+	static final int READ_BUFFER = 1 << 20;
+
+	/**
+	 * Digit value of every byte, 36 or more if it is not a digit in any radix
+	 */
+	private static final byte[] DIGIT = new byte[256];
+	static {
+		Arrays.fill(DIGIT, (byte) 127);
+		for (int c = '0'; c <= '9'; c++) {
+			DIGIT[c] = (byte) (c - '0');
+		}
+		for (int c = 'a'; c <= 'z'; c++) {
+			DIGIT[c] = (byte) (c - 'a' + 10);
+			DIGIT[c - 'a' + 'A'] = (byte) (c - 'a' + 10);
+		}
+	}
+
+	/**
+	 * Radix, 0 until it is read
+	 */
+	private int radix;
+
+	/**
+	 * Number of digits after the point in every key
+	 */
+	private int scale;
+
+	/**
+	 * Keys read so far
+	 */
+	private long[] keys;
+
+	/**
+	 * Number of keys read so far
+	 */
+	private int count;
+
+	/**
+	 * Magnitude of the item being read
+	 */
+	private long value;
+
+	/**
+	 * Number of characters of the item being read, 0 between items
+	 */
+	private int length;
+
+	/**
+	 * Number of digits of the item being read
+	 */
+	private int digits;
+
+	/**
+	 * Number of digits after the point of the item being read, -1 if no
+	 * point has been seen
+	 */
+	private int frac;
+
+	/**
+	 * True if the item being read is negative
+	 */
+	private boolean negative;
+
+	private RadixInput(int scale) {
+		this.scale = scale;
+		keys = new long[1024];
+		frac = -1;
+	}
+
+	/**
+	 * Reads the input from a file channel, through a direct buffer
+	 *
+	 * @param ch
+	 *            Channel positioned at the start of the input
+	 * @return Input that was read
+	 * @throws IOException
+	 *             If there is an error reading, or the input is malformed
+	 */
+	public static RadixInput read(FileChannel ch) throws IOException {
+		return read(ch, 0);
+	}
+
+	/**
+	 * Reads fixed point input from a file channel, through a direct buffer
+	 *
+	 * @param ch
+	 *            Channel positioned at the start of the input
+	 * @param scale
+	 *            Max number of digits after the point
+	 * @return Input that was read, keys scaled by radix^scale
+	 * @throws IOException
+	 *             If there is an error reading, or the input is malformed
+	 */
+	public static RadixInput read(FileChannel ch, int scale) throws IOException {
+		RadixInput in = new RadixInput(scale);
+		ByteBuffer buf = ByteBuffer.allocateDirect(READ_BUFFER);
+		while (ch.read(buf) >= 0) {
+			buf.flip();
+			in.parse(buf);
+			buf.clear();
+		}
+		in.finish();
+		return in;
+	}
+
+	/**
+	 * Reads the input from a buffer, such as one mapped from a file
+	 *
+	 * @param buf
+	 *            Buffer that holds the whole input between its position and
+	 *            its limit
+	 * @return Input that was read
+	 * @throws IOException
+	 *             If the input is malformed
+	 */
+	public static RadixInput read(ByteBuffer buf) throws IOException {
+		return read(buf, 0);
+	}
+
+	/**
+	 * Reads fixed point input from a buffer, such as one mapped from a file
+	 *
+	 * @param buf
+	 *            Buffer that holds the whole input between its position and
+	 *            its limit
+	 * @param scale
+	 *            Max number of digits after the point
+	 * @return Input that was read, keys scaled by radix^scale
+	 * @throws IOException
+	 *             If the input is malformed
+	 */
+	public static RadixInput read(ByteBuffer buf, int scale) throws IOException {
+		RadixInput in = new RadixInput(scale);
+		in.parse(buf);
+		in.finish();
+		return in;
+	}
+
+	/**
+	 * Gives the radix, 0 if the input is empty
+	 *
+	 * @return Radix
+	 */
+	public int radix() {
+		return radix;
+	}
+
+	/**
+	 * Gives the keys, in input order
+	 *
+	 * @return Array of keys, exactly as long as the number of keys
+	 */
+	public long[] keys() {
+		if (keys.length != count) {
+			keys = Arrays.copyOf(keys, count);
+		}
+		return keys;
+	}
+
+	private void parse(ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			int b = buf.get() & 0xFF;
+			if (b <= ' ') {
+				if (length > 0) {
+					endItem();
+				}
+				continue;
+			}
+			length++;
+			if (radix == 0) { // the radix itself is decimal
+				if (DIGIT[b] >= 10 || (value = value * 10 + DIGIT[b]) > Character.MAX_RADIX) {
+					throw new IOException("Radix out of range");
+				}
+				digits++;
+				continue;
+			}
+			if ((b == '-' || b == '+') && length == 1) {
+				negative = b == '-';
+				continue;
+			}
+			if (b == '.' && frac < 0 && scale > 0) {
+				frac = 0;
+				continue;
+			}
+			int d = DIGIT[b];
+			if (d >= radix) {
+				throw new IOException("Not a radix " + radix + " digit: '" + (char) b + "' in item " + count);
+			}
+			if (frac >= 0 && ++frac > scale) {
+				throw new IOException("More than " + scale + " digits after the point in item " + count);
+			}
+			if (value > (Long.MAX_VALUE - d) / radix) {
+				throw new IOException("Item " + count + " does not fit in a long");
+			}
+			value = value * radix + d;
+			digits++;
+		}
+	}
+
+	private void endItem() throws IOException {
+		if (digits == 0) {
+			throw new IOException("No digits in item " + count);
+		}
+		if (radix == 0) {
+			if (value < Character.MIN_RADIX) {
+				throw new IOException("Radix out of range: " + value);
+			}
+			radix = (int) value;
+		} else {
+			long v = value;
+			for (int f = Math.max(frac, 0); f < scale; f++) {
+				if (v > Long.MAX_VALUE / radix) {
+					throw new IOException("Item " + count + " does not fit in a long");
+				}
+				v *= radix;
+			}
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, 2 * count);
+			}
+			keys[count++] = negative ? -v : v;
+		}
+		value = 0;
+		length = 0;
+		digits = 0;
+		frac = -1;
+		negative = false;
+	}
+
+	private void finish() throws IOException {
+		if (length > 0) {
+			endItem();
+		}
+	}
+}
@@ -1,239 +1,588 @@
-package apps;
-
-import java.io.IOException;
-import java.util.Scanner;
-
-import structures.Node;
-
-/**
- * This class sorts a given list of strings which represent numbers in the given
- * radix system. For instance, radix=10 means decimal numbers; radix=16 means
- * hexadecimal numbers.
- * 
- * @author ru-nb-cs112
- */
-public class Radixsort {
-
-	/**
-	 * Master list that holds all items, starting with input, and updated after
-	 * every pass of the radixsort algorithm. Holds sorted result after the
-	 * final pass. This is a circular linked list in which every item is stored
-	 * in its textual string form (even though the items represent numbers).
-	 * This masterListRear field points to the last node in the CLL.
-	 */
-	Node<String> masterListRear;
-
-	/**
-	 * Array of linked lists that holds the digit-wise distribution of the items
-	 * during each pass of the radixsort algorithm.
-	 */
-	Node<String>[] buckets;
-
-	/**
-	 * The sort radix, defaults to 10.
-	 */
-	int radix = 10;
-
-	/**
-	 * Initializes this object with the given radix (10 or 16)
-	 * 
-	 * @param radix
-	 */
-	public Radixsort() {
-		masterListRear = null;
-		buckets = null;
-	}
-
-	/**
-	 * Sorts the items in the input file, and returns a CLL containing the
-	 * sorted result in ascending order. The first line in the input file is the
-	 * radix. Every subsequent line is a number, to be read in as a string.
-	 * 
-	 * The items in the input are first read and stored in the master list,
-	 * which is a CLL that is referenced by the masterListRear field. Next, the
-	 * max number of digits in the items is determined. Then, scatter and gather
-	 * are called, for each pass through the items. Pass 0 is for the least
-	 * significant digit, pass 1 for the second-to-least significant digit, etc.
-	 * After each pass, the master list is updated with items in the order
-	 * determined at the end of that pass.
-	 * 
-	 * NO NEW NODES are created in the sort process - the nodes of the master
-	 * list are recycled through all the intermediate stages of the sorting
-	 * process.
-	 * 
-	 * @param sc
-	 *            Scanner that points to the input file of radix + items to be
-	 *            sorted
-	 * @return Sorted (in ascending order) circular list of items
-	 * @throws IOException
-	 *             If there is an exception in reading the input file
-	 */
-	public Node<String> sort(Scanner sc) throws IOException {
-		// first line is radix
-		if (!sc.hasNext()) { // empty file, nothing to sort
-			return null;
-		}
-
-		// read radix from file, and set up buckets for linked lists
-		radix = sc.nextInt();
-		buckets = (Node<String>[]) new Node[radix];
-
-		// create master list from input
-		createMasterListFromInput(sc);
-
-		// find the string with the maximum length
-		int maxDigits = getMaxDigits();
-
-		for (int i = 0; i < maxDigits; i++) {
-			scatter(i);
-			gather();
-		}
-
-		return masterListRear;
-	}
-
-	/**
-	 * Reads entries to be sorted from input file and stores them as strings in
-	 * the master CLL (pointed by the instance field masterListRear, in the
-	 * order in which they are read. In other words, the first entry in the
-	 * linked list is the first entry in the input, the second entry in the
-	 * linked list is the second entry in the input, and so on.
-	 * 
-	 * @param sc
-	 *            Scanner pointing to the input file
-	 * @throws IOException
-	 *             If there is any error in reading the input
-	 */
-	public void createMasterListFromInput(Scanner sc) throws IOException {
-		Node front = new Node<String>(sc.next(), null);
-		Node rear = front;
-		Node curr = front;
-		// System.out.println("Initialize rear: " + front.data);
-		Node<String> N = null;
-		while (sc.hasNext()) {
-			N = new Node<String>(sc.next(), null);
-			curr.next = N;
-			curr = curr.next;
-			rear = N;
-			// System.out.println("NLoop: " + N.data);
-		}
-		masterListRear = rear;
-		masterListRear.next = front;
-
-		// Node<String> ptr = masterListRear.next;
-		// do {
-		// System.out.println("Creating: " + ptr.data);
-		// ptr = ptr.next;
-		// } while (ptr != masterListRear.next);
-	}
-
-	/**
-	 * Determines the maximum number of digits over all the entries in the
-	 * master list
-	 * 
-	 * @return Maximum number of digits over all the entries
-	 */
-	public int getMaxDigits() {
-		int maxDigits = masterListRear.data.length();
-		Node<String> ptr = masterListRear.next;
-		while (ptr != masterListRear) {
-			int length = ptr.data.length();
-			if (length > maxDigits) {
-				maxDigits = length;
-			}
-			ptr = ptr.next;
-		}
-		return maxDigits;
-	}
-
-	/**
-	 * Scatters entries of master list (referenced by instance field
-	 * masterListReat) to buckets for a given pass.
-	 * 
-	 * Passes are digit by digit, starting with the rightmost digit - the
-	 * rightmost digit is the "0-th", i.e. pass=0 for rightmost digit, pass=1
-	 * for second to rightmost, and so on.
-	 * 
-	 * Each digit is extracted as a character, then converted into the
-	 * appropriate numeric value in the given radix using the
-	 * java.lang.Character.digit(char ch, int radix) method
-	 * 
-	 * @param pass
-	 *            Pass is 0 for rightmost digit, 1 for second to rightmost, etc
-	 */
-	public void scatter(int pass) {
-		Node<String> ptr = masterListRear.next;
-		do {
-			int c = ptr.data.length() - pass - 1;
-			int d;
-			if (c < 0) { // essentially padding with 0's
-				if (buckets[0] == null) {
-					buckets[0] = new Node<String>(ptr.data, null);
-					buckets[0].next = buckets[0];
-					// System.out.println("Bucket dump1.1: " + buckets[0].data);
-				} else {
-					Node<String> temp = new Node<String>(ptr.data, buckets[0].next);
-					// System.out.println("Bucket dump1.2: " + temp.data);
-					buckets[0].next = temp;
-					buckets[0] = temp;
-				}
-			} else {
-				d = Character.digit(ptr.data.charAt(c), radix);
-				// System.out.println("d: " + d);
-				if (buckets[d] == null) {
-					buckets[d] = new Node<String>(ptr.data, null);
-					buckets[d].next = buckets[d];
-					// System.out.println("Bucket dump2.1: " + buckets[d].data);
-				} else {
-					Node<String> temp = new Node<String>(ptr.data, buckets[d].next);
-					// System.out.println("Bucket dump2.2: " + temp.data);
-					buckets[d].next = temp;
-					buckets[d] = temp;
-				}
-			}
-			ptr = ptr.next;
-		} while (ptr != masterListRear.next);
-		// System.out.println("Bucket check at pass: " + pass);
-		for (int i = 0; i < radix; i++) {
-			// System.out.println("Bucket: " + i);
-			Node<String> curr = buckets[i];
-			if (curr == null) {
-				// System.out.println("Empty");
-				continue;
-			} else {
-				curr = buckets[i].next;
-				do {
-					// System.out.println(curr.data);
-					curr = curr.next;
-				} while (curr != buckets[i].next);
-			}
-		}
-	}
-
-	/**
-	 * Gathers all the CLLs in all the buckets into the master list, referenced
-	 * by the instance field masterListRear
-	 * 
-	 * @param buckets
-	 *            Buckets of CLLs
-	 */
-	public void gather() {
-		Node<String> front = null, rear = null;
-		for (int i = 0; i < radix; i++) {
-			if (buckets[i] == null) {
-				continue;
-			}
-			if (front == null) {
-				front = buckets[i].next;
-				// System.out.println("gather front: " + front);
-			} else {
-				rear.next = buckets[i].next;
-			}
-			rear = buckets[i];
-		}
-		masterListRear = rear;
-		masterListRear.next = front;
-		buckets = (Node<String>[]) new Node[radix];
-		return;
-	}
-}
+package apps;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import structures.Node;
+
+/**
+ * This class sorts a given list of strings which represent numbers in the given
+ * radix system. For instance, radix=10 means decimal numbers; radix=16 means
+ * hexadecimal numbers.
+ * 
+ * @author ru-nb-cs112
+ */
+public class Radixsort {
+
+	/**
+	 * Master list that holds all items, starting with input, and updated after
+	 * every pass of the radixsort algorithm. Holds sorted result after the
+	 * final pass. This is a circular linked list in which every item is stored
+	 * in its textual string form (even though the items represent numbers).
+	 * This masterListRear field points to the last node in the CLL.
+	 */
+	Node<String> masterListRear;
+
+	/**
+	 * Array of linked lists that holds the digit-wise distribution of the items
+	 * during each pass of the radixsort algorithm.
+	 */
+	Node<String>[] buckets;
+
+	/**
+	 * The sort radix, defaults to 10.
+	 */
+	int radix = 10;
+
+	/**
+	 * Max number of digits after the point over all items, 0 unless items are
+	 * fixed point decimals
+	 */
+	int fracDigits = 0;
+
+	/**
+	 * True if some item has a point, in which case digits are aligned on it
+	 */
+	boolean decimal = false;
+
+	/**
+	 * True if some item is negative, in which case a final sign pass is made
+	 */
+	boolean signed = false;
+
+	/**
+	 * Initializes this object with the given radix (10 or 16)
+	 * 
+	 * @param radix
+	 */
+	public Radixsort() {
+		masterListRear = null;
+		buckets = null;
+	}
+
+	/**
+	 * Sorts the items in the input file, and returns a CLL containing the
+	 * sorted result in ascending order. The first line in the input file is the
+	 * radix. Every subsequent line is a number, to be read in as a string.
+	 * 
+	 * The items in the input are first read and stored in the master list,
+	 * which is a CLL that is referenced by the masterListRear field. Next, the
+	 * max number of digits in the items is determined. Then, scatter and gather
+	 * are called, for each pass through the items. Pass 0 is for the least
+	 * significant digit, pass 1 for the second-to-least significant digit, etc.
+	 * After each pass, the master list is updated with items in the order
+	 * determined at the end of that pass.
+	 * 
+	 * NO NEW NODES are created in the sort process - the nodes of the master
+	 * list are recycled through all the intermediate stages of the sorting
+	 * process.
+	 * 
+	 * Items may have a leading sign, and may be fixed point decimals with a
+	 * point, such as "-1a.8" in radix 16. Digits are then aligned on the
+	 * point, the digits of negative items are complemented (d becomes
+	 * radix-1-d) so that larger magnitudes sort first, and a last pass puts
+	 * the negative items ahead of the others.
+	 * 
+	 * @param sc
+	 *            Scanner that points to the input file of radix + items to be
+	 *            sorted
+	 * @return Sorted (in ascending order) circular list of items
+	 * @throws IOException
+	 *             If there is an exception in reading the input file
+	 */
+	public Node<String> sort(Scanner sc) throws IOException {
+		// first line is radix
+		if (!sc.hasNext()) { // empty file, nothing to sort
+			return null;
+		}
+
+		// read radix from file, and set up buckets for linked lists
+		radix = sc.nextInt();
+		buckets = newBuckets(radix);
+
+		// create master list from input
+		createMasterListFromInput(sc);
+
+		// find the number of digit positions, aligned on the point
+		int maxDigits = measure();
+
+		for (int i = 0; i < maxDigits; i++) {
+			scatter(i);
+			gather();
+		}
+		if (signed) {
+			scatter(-1);
+			gather();
+		}
+
+		return masterListRear;
+	}
+
+	/**
+	 * Sorts the items in the input file, as sort(Scanner) does, but counts the
+	 * digits of every pass in one pre-pass over the master list, and skips
+	 * every pass in which all items have the same digit, since such a pass
+	 * would leave the master list as it is. This pays off when the items
+	 * share leading digits, for instance when they are padded with 0's or lie
+	 * in a narrow range. The result is the same as that of sort(Scanner).
+	 * 
+	 * @param sc
+	 *            Scanner that points to the input file of radix + items to be
+	 *            sorted
+	 * @return Sorted (in ascending order) circular list of items
+	 * @throws IOException
+	 *             If there is an exception in reading the input file
+	 */
+	public Node<String> sortAdaptive(Scanner sc) throws IOException {
+		if (!sc.hasNext()) { // empty file, nothing to sort
+			return null;
+		}
+		radix = sc.nextInt();
+		buckets = newBuckets(radix);
+		createMasterListFromInput(sc);
+
+		int maxDigits = measure();
+		int[][] count = histograms(maxDigits);
+		for (int i = 0; i < maxDigits; i++) {
+			if (!oneBucket(count[i])) {
+				scatter(i);
+				gather();
+			}
+		}
+		if (signed && !oneBucket(count[maxDigits])) {
+			scatter(-1);
+			gather();
+		}
+
+		return masterListRear;
+	}
+
+	/**
+	 * Sorts the items in the input file with a parallel MSD radix sort, and
+	 * returns a CLL containing the sorted result in ascending order. The input
+	 * and the result are the same as for sort(Scanner). The items are read
+	 * into the master list, sorted as an array by ParallelRadixsort, and then
+	 * written back into the nodes of the master list in sorted order, so NO
+	 * NEW NODES are created here either.
+	 * 
+	 * @param sc
+	 *            Scanner that points to the input file of radix + items to be
+	 *            sorted
+	 * @return Sorted (in ascending order) circular list of items
+	 * @throws IOException
+	 *             If there is an exception in reading the input file
+	 */
+	public Node<String> sortParallel(Scanner sc) throws IOException {
+		if (!sc.hasNext()) { // empty file, nothing to sort
+			return null;
+		}
+		radix = sc.nextInt();
+		createMasterListFromInput(sc);
+
+		int n = 0;
+		Node<String> ptr = masterListRear;
+		do {
+			n++;
+			ptr = ptr.next;
+		} while (ptr != masterListRear);
+		String[] items = new String[n];
+		for (int i = 0; i < n; i++) {
+			ptr = ptr.next;
+			items[i] = ptr.data;
+		}
+
+		new ParallelRadixsort().sort(items, radix);
+
+		for (int i = 0; i < n; i++) {
+			ptr = ptr.next;
+			ptr.data = items[i];
+		}
+		return masterListRear;
+	}
+
+	/**
+	 * Sorts the items in the input file as primitive keys, and returns them in
+	 * ascending order. The input is the same as for sort(Scanner): the radix,
+	 * then the items. Every item is parsed into a long once, as it is read, and
+	 * the keys are then sorted with byte-wise LSD passes over arrays, without
+	 * any linked list nodes or per-item objects.
+	 * 
+	 * @param sc
+	 *            Scanner that points to the input file of radix + items to be
+	 *            sorted
+	 * @return Sorted (in ascending order) keys, an empty array if the input is
+	 *         empty
+	 * @throws IOException
+	 *             If there is an exception in reading the input file
+	 * @throws NumberFormatException
+	 *             If an item is not a number in the radix, or does not fit in a
+	 *             long
+	 */
+	public long[] sortKeys(Scanner sc) throws IOException, NumberFormatException {
+		if (!sc.hasNext()) { // empty file, nothing to sort
+			return new long[0];
+		}
+		radix = sc.nextInt();
+
+		long[] keys = new long[1024];
+		int n = 0;
+		while (sc.hasNext()) {
+			if (n == keys.length) {
+				keys = Arrays.copyOf(keys, 2 * n);
+			}
+			keys[n++] = Long.parseLong(sc.next(), radix);
+		}
+		keys = Arrays.copyOf(keys, n);
+
+		new PrimitiveRadixsort().sortAdaptive(keys);
+		return keys;
+	}
+
+	/**
+	 * Finds the smallest items in the input file as primitive keys, and
+	 * returns them in ascending order. The input is the same as for
+	 * sortKeys(Scanner), but the items are streamed through a
+	 * PrimitiveRadixsort.TopN collector instead of being held, so the memory
+	 * used is bounded by the number of keys wanted, not by the input size.
+	 * 
+	 * @param sc
+	 *            Scanner that points to the input file of radix + items
+	 * @param n
+	 *            Number of keys wanted
+	 * @return The n smallest keys (all of them if there are fewer), in
+	 *         ascending order, an empty array if the input is empty
+	 * @throws IOException
+	 *             If there is an exception in reading the input file
+	 * @throws NumberFormatException
+	 *             If an item is not a number in the radix, or does not fit in a
+	 *             long
+	 */
+	public long[] smallestKeys(Scanner sc, int n) throws IOException, NumberFormatException {
+		if (!sc.hasNext()) { // empty file, nothing to sort
+			return new long[0];
+		}
+		radix = sc.nextInt();
+
+		PrimitiveRadixsort.TopN top = new PrimitiveRadixsort.TopN(n);
+		while (sc.hasNext()) {
+			top.add(Long.parseLong(sc.next(), radix));
+		}
+		return top.result();
+	}
+
+	/**
+	 * Sorts the items in an input file as primitive keys, as sortKeys(Scanner)
+	 * does, but reads the input straight from a file channel with RadixInput
+	 * instead of Scanner.
+	 * 
+	 * @param ch
+	 *            File channel positioned at the start of the input file of
+	 *            radix + items to be sorted
+	 * @return Sorted (in ascending order) keys, an empty array if the input is
+	 *         empty
+	 * @throws IOException
+	 *             If there is an exception in reading the input file, or an
+	 *             item is not a number in the radix
+	 */
+	public long[] sortKeys(FileChannel ch) throws IOException {
+		return sortKeys(ch, 0);
+	}
+
+	/**
+	 * Sorts the fixed point items in an input file as primitive keys. Items
+	 * may be signed, and may have up to scale digits after the point. Every
+	 * key is the item's value times radix^scale, so for instance with radix 10
+	 * and scale 2 the item "-3.5" is sorted, and returned, as -350.
+	 * 
+	 * @param ch
+	 *            File channel positioned at the start of the input file of
+	 *            radix + items to be sorted
+	 * @param scale
+	 *            Max number of digits after the point
+	 * @return Sorted (in ascending order) scaled keys, an empty array if the
+	 *         input is empty
+	 * @throws IOException
+	 *             If there is an exception in reading the input file, or an
+	 *             item is not a fixed point number in the radix and scale
+	 */
+	public long[] sortKeys(FileChannel ch, int scale) throws IOException {
+		RadixInput in = RadixInput.read(ch, scale);
+		if (in.radix() == 0) { // empty file, nothing to sort
+			return new long[0];
+		}
+		radix = in.radix();
+		long[] keys = in.keys();
+		new PrimitiveRadixsort().sortAdaptive(keys);
+		return keys;
+	}
+
+	/**
+	 * Makes an empty array of buckets
+	 * 
+	 * @param radix
+	 *            Number of buckets
+	 * @return Array of empty bucket lists
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Node<String>[] newBuckets(int radix) {
+		return (Node<String>[]) new Node[radix];
+	}
+
+	/**
+	 * Reads entries to be sorted from input file and stores them as strings in
+	 * the master CLL (pointed by the instance field masterListRear, in the
+	 * order in which they are read. In other words, the first entry in the
+	 * linked list is the first entry in the input, the second entry in the
+	 * linked list is the second entry in the input, and so on.
+	 * 
+	 * @param sc
+	 *            Scanner pointing to the input file
+	 * @throws IOException
+	 *             If there is any error in reading the input
+	 */
+	public void createMasterListFromInput(Scanner sc) throws IOException {
+		Node front = new Node<String>(sc.next(), null);
+		Node rear = front;
+		Node curr = front;
+		// System.out.println("Initialize rear: " + front.data);
+		Node<String> N = null;
+		while (sc.hasNext()) {
+			N = new Node<String>(sc.next(), null);
+			curr.next = N;
+			curr = curr.next;
+			rear = N;
+			// System.out.println("NLoop: " + N.data);
+		}
+		masterListRear = rear;
+		masterListRear.next = front;
+
+		// Node<String> ptr = masterListRear.next;
+		// do {
+		// System.out.println("Creating: " + ptr.data);
+		// ptr = ptr.next;
+		// } while (ptr != masterListRear.next);
+	}
+
+	/**
+	 * Determines the maximum number of digits over all the entries in the
+	 * master list
+	 * 
+	 * @return Maximum number of digits over all the entries
+	 */
+	public int getMaxDigits() {
+		int maxDigits = masterListRear.data.length();
+		Node<String> ptr = masterListRear.next;
+		while (ptr != masterListRear) {
+			int length = ptr.data.length();
+			if (length > maxDigits) {
+				maxDigits = length;
+			}
+			ptr = ptr.next;
+		}
+		return maxDigits;
+	}
+
+	/**
+	 * Finds the number of digit positions over all the entries in the master
+	 * list: the max number of digits before the point plus the max number of
+	 * digits after it. Also sets the fracDigits, decimal and signed fields.
+	 * 
+	 * @return Number of digit positions, that is, the number of digit passes
+	 */
+	private int measure() {
+		int maxInt = 0;
+		fracDigits = 0;
+		decimal = false;
+		signed = false;
+		Node<String> ptr = masterListRear;
+		do {
+			ptr = ptr.next;
+			String s = ptr.data;
+			char c0 = s.charAt(0);
+			int start = c0 == '-' || c0 == '+' ? 1 : 0;
+			if (c0 == '-') {
+				signed = true;
+			}
+			int point = s.indexOf('.');
+			if (point < 0) {
+				maxInt = Math.max(maxInt, s.length() - start);
+			} else {
+				decimal = true;
+				maxInt = Math.max(maxInt, point - start);
+				fracDigits = Math.max(fracDigits, s.length() - point - 1);
+			}
+		} while (ptr != masterListRear);
+		return maxInt + fracDigits;
+	}
+
+	/**
+	 * Counts the digits of every pass over all the entries in the master list,
+	 * in one pass through it
+	 * 
+	 * @param maxDigits
+	 *            Number of digit passes
+	 * @return Digit counts, count[pass][digit], with the counts of the sign
+	 *         pass (negative, other) in count[maxDigits]
+	 */
+	private int[][] histograms(int maxDigits) {
+		int[][] count = new int[maxDigits + 1][];
+		for (int i = 0; i < maxDigits; i++) {
+			count[i] = new int[radix];
+		}
+		count[maxDigits] = new int[2];
+		Node<String> ptr = masterListRear;
+		do {
+			ptr = ptr.next;
+			String s = ptr.data;
+			int intEnd = intEnd(s);
+			for (int i = 0; i < maxDigits; i++) {
+				count[i][digit(s, i, intEnd)]++;
+			}
+			count[maxDigits][s.charAt(0) == '-' ? 0 : 1]++;
+		} while (ptr != masterListRear);
+		return count;
+	}
+
+	/**
+	 * Tells whether all items fall in one bucket in a pass
+	 * 
+	 * @param count
+	 *            Digit counts of the pass
+	 * @return True if one digit has all the items
+	 */
+	private static boolean oneBucket(int[] count) {
+		int nonEmpty = 0;
+		for (int c : count) {
+			if (c > 0) {
+				nonEmpty++;
+			}
+		}
+		return nonEmpty == 1;
+	}
+
+	/**
+	 * Finds where the integer digits of an item end
+	 * 
+	 * @param s
+	 *            Item
+	 * @return Index of the point, or the length of the item if it has none
+	 */
+	private int intEnd(String s) {
+		if (decimal) {
+			int point = s.indexOf('.');
+			if (point >= 0) {
+				return point;
+			}
+		}
+		return s.length();
+	}
+
+	/**
+	 * Gives the digit of an item for a pass, aligned on the point and padded
+	 * with 0's on both sides. For a negative item, the complement radix-1-d of
+	 * the digit d is returned.
+	 * 
+	 * @param s
+	 *            Item
+	 * @param pass
+	 *            Pass is 0 for rightmost digit position, 1 for second to
+	 *            rightmost, etc
+	 * @param intEnd
+	 *            Where the integer digits of the item end, from intEnd(s)
+	 * @return Digit value, 0 to radix-1
+	 * @throws NumberFormatException
+	 *             If the item has a character that is not a digit in the radix
+	 */
+	private int digit(String s, int pass, int intEnd) throws NumberFormatException {
+		int len = s.length();
+		char c0 = s.charAt(0);
+		int start = c0 == '-' || c0 == '+' ? 1 : 0;
+		int c;
+		if (pass < fracDigits) {
+			c = intEnd + fracDigits - pass; // digit after the point
+			if (c >= len) {
+				c = -1;
+			}
+		} else {
+			c = intEnd - 1 - (pass - fracDigits);
+			if (c < start) {
+				c = -1;
+			}
+		}
+		int d = 0; // c < 0 is padding with 0's
+		if (c >= 0) {
+			d = Character.digit(s.charAt(c), radix);
+			if (d < 0) {
+				throw new NumberFormatException("Not a radix " + radix + " number: " + s);
+			}
+		}
+		return c0 == '-' ? radix - 1 - d : d;
+	}
+
+	/**
+	 * Scatters entries of master list (referenced by instance field
+	 * masterListReat) to buckets for a given pass.
+	 * 
+	 * Passes are digit by digit, starting with the rightmost digit - the
+	 * rightmost digit is the "0-th", i.e. pass=0 for rightmost digit, pass=1
+	 * for second to rightmost, and so on.
+	 * 
+	 * Each digit is extracted as a character, then converted into the
+	 * appropriate numeric value in the given radix using the
+	 * java.lang.Character.digit(char ch, int radix) method
+	 * 
+	 * Pass -1 is the sign pass, which puts negative items in bucket 0 and all
+	 * others in bucket 1.
+	 * 
+	 * The nodes of the master list are unlinked from it and relinked at the
+	 * rear of their buckets, in O(1) time each - no nodes are created. The
+	 * master list is empty after the scatter, until gather is called.
+	 * 
+	 * @param pass
+	 *            Pass is 0 for rightmost digit, 1 for second to rightmost, etc,
+	 *            or -1 for the sign
+	 */
+	public void scatter(int pass) {
+		Node<String> ptr = masterListRear.next;
+		masterListRear.next = null; // break the circle, the rear is the last node
+		masterListRear = null;
+		while (ptr != null) {
+			Node<String> next = ptr.next;
+			String s = ptr.data;
+			int d = pass < 0 ? (s.charAt(0) == '-' ? 0 : 1) : digit(s, pass, intEnd(s));
+			if (buckets[d] == null) {
+				ptr.next = ptr;
+			} else {
+				ptr.next = buckets[d].next;
+				buckets[d].next = ptr;
+			}
+			buckets[d] = ptr;
+			ptr = next;
+		}
+	}
+
+	/**
+	 * Gathers all the CLLs in all the buckets into the master list, referenced
+	 * by the instance field masterListRear. The buckets are emptied, and the
+	 * same buckets array is used again for the next pass.
+	 */
+	public void gather() {
+		Node<String> front = null, rear = null;
+		for (int i = 0; i < radix; i++) {
+			if (buckets[i] == null) {
+				continue;
+			}
+			if (front == null) {
+				front = buckets[i].next;
+			} else {
+				rear.next = buckets[i].next;
+			}
+			rear = buckets[i];
+			buckets[i] = null;
+		}
+		masterListRear = rear;
+		masterListRear.next = front;
+	}
+}
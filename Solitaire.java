@@ -1,8 +1,9 @@
 package solitaire;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Scanner;
-import java.util.Random;
 import java.util.NoSuchElementException;
 
 /**
@@ -18,26 +19,52 @@ public class Solitaire {
 	 */
 	CardNode deckRear;
 
+	/**
+	 * Number of characters read and written at a time by the stream ciphers
+	 */
+	static final int STREAM_BUFFER = 1 << 13;
+
+	/**
+	 * Factory that shuffles the decks of makeDeck(), made on first use unless
+	 * one is set with setDeckFactory
+	 */
+	private DeckFactory deckFactory;
+
+	/**
+	 * Sets the factory that shuffles the decks of makeDeck(), for instance a
+	 * seeded one so that the same decks are made every time
+	 * 
+	 * @param factory
+	 *            Factory that shuffles the cards
+	 */
+	public void setDeckFactory(DeckFactory factory) {
+		deckFactory = factory;
+	}
+
 	/**
 	 * Makes a shuffled deck of cards for encryption. The deck is stored in a
-	 * circular linked list, whose last node is pointed to by the field deckRear
+	 * circular linked list, whose last node is pointed to by the field
+	 * deckRear. All the decks of this object are shuffled by the same deck
+	 * factory, an unseeded one unless another is set with setDeckFactory.
 	 */
 	public void makeDeck() {
-		// start with an array of 1..28 for easy shuffling
-		int[] cardValues = new int[28];
-		// assign values from 1 to 28
-		for (int i = 0; i < cardValues.length; i++) {
-			cardValues[i] = i + 1;
+		if (deckFactory == null) {
+			deckFactory = new DeckFactory();
 		}
+		makeDeck(deckFactory);
+	}
 
-		// shuffle the cards
-		Random randgen = new Random();
-		for (int i = 0; i < cardValues.length; i++) {
-			int other = randgen.nextInt(28);
-			int temp = cardValues[i];
-			cardValues[i] = cardValues[other];
-			cardValues[other] = temp;
-		}
+	/**
+	 * Makes a deck of cards for encryption, shuffled by a deck factory, so
+	 * that for instance a seeded factory makes the same deck every time. The
+	 * deck is stored in a circular linked list, whose last node is pointed to
+	 * by the field deckRear
+	 * 
+	 * @param factory
+	 *            Factory that shuffles the cards
+	 */
+	public void makeDeck(DeckFactory factory) {
+		int[] cardValues = factory.shuffle(28);
 
 		// create a circular linked list from this deck and make deckRear point
 		// to its last node
@@ -252,38 +279,34 @@ public class Solitaire {
 	 * the next card value as key. But if that value is 27 or 28, repeats the
 	 * whole process (Joker A through Count Cut) on the latest (current) deck,
 	 * until a value less than or equal to 26 is found, which is then returned.
+	 * The process is repeated in a loop, so no joker can make the stack deep.
 	 * 
 	 * @return Key between 1 and 26
 	 */
 	int getKey() {
-		jokerA();
-		jokerB();
-		tripleCut();
-		countCut();
-
-		int k = deckRear.next.cardValue;
-		if (k == 28) {
-			k = 27;
-		}
-
-		CardNode key = deckRear;
-		for (int i = 0; i < k; i++) {
-			key = key.next;
-		}
-
-		key = key.next;
-		int kvalue = key.cardValue;
-		if (kvalue == 27 || kvalue == 28) {
+		while (true) {
+			jokerA();
+			jokerB();
+			tripleCut();
+			countCut();
+
+			int k = deckRear.next.cardValue;
+			if (k == 28) {
+				k = 27;
+			}
 
-			// System.out.println();
-			// System.out.println("invalid key: " + kvalue);
+			CardNode key = deckRear;
+			for (int i = 0; i < k; i++) {
+				key = key.next;
+			}
 
-			return getKey();
+			key = key.next;
+			int kvalue = key.cardValue;
+			if (kvalue != 27 && kvalue != 28) {
+				return kvalue;
+			}
+			// joker, repeat on the current deck
 		}
-
-		// System.out.println();
-		// System.out.println("key: " + kvalue);
-		return kvalue;
 	}
 
 	/**
@@ -306,69 +329,216 @@ public class Solitaire {
 	}
 
 	/**
-	 * Encrypts a message, ignores all characters except upper case letters
+	 * Encrypts a message, ignores all characters except upper case letters.
+	 * The keys are made in batches by an ArrayDeck copy of the deck, which is
+	 * written back to the deck at the end, so the deck ends up as if getKey
+	 * had been called once per letter.
 	 * 
 	 * @param message
 	 *            Message to be encrypted
 	 * @return Encrypted message, a sequence of upper case letters only
 	 */
 	public String encrypt(String message) {
-		String s = "";
+		String s = letters(message);
+		if (s.isEmpty()) {
+			return "";
+		}
+		ArrayDeck deck = ArrayDeck.from(deckRear);
+		String emes = cipher(deck, s, true);
+		deck.writeTo(deckRear);
+		return emes;
+	}
+
+	/**
+	 * Decrypts a message, which consists of upper case letters only. The keys
+	 * are made in batches, as in encrypt.
+	 * 
+	 * @param message
+	 *            Message to be decrypted
+	 * @return Decrypted message, a sequence of upper case letters only
+	 */
+	public String decrypt(String message) {
+		if (message.isEmpty()) {
+			return "";
+		}
+		ArrayDeck deck = ArrayDeck.from(deckRear);
+		String dmes = cipher(deck, message, false);
+		deck.writeTo(deckRear);
+		return dmes;
+	}
+
+	/**
+	 * Keeps only the letters of a message that upper case to A..Z, upper
+	 * cased one character at a time, as encrypt(Reader, Writer) does
+	 * 
+	 * @param message
+	 *            Message
+	 * @return Letters of the message, in upper case
+	 */
+	static String letters(String message) {
 		int size = message.length();
+		char[] buf = new char[size];
+		int m = 0;
 		for (int i = 0; i < size; i++) {
-			if (Character.isLetter(message.charAt(i))) {
-				s = s + message.charAt(i);
+			char c = upper(message.charAt(i));
+			if (c != 0) {
+				buf[m++] = c;
 			}
 		}
-		s = s.toUpperCase();
+		return new String(buf, 0, m);
+	}
 
-		// System.out.println("Modified message: " + s);
-		// jokerA();
-		// jokerB();
-		// tripleCut();
-		// countCut();
+	/**
+	 * Upper cases a character for the ciphers. Only A..Z can be encrypted, so
+	 * letters whose upper case is not one of them, such as an accented e or a
+	 * German sharp s, are dropped like any other character.
+	 * 
+	 * @param c
+	 *            Character
+	 * @return Upper case letter A..Z, or 0 if c is not one
+	 */
+	static char upper(char c) {
+		char u = Character.toUpperCase(c);
+		return u >= 'A' && u <= 'Z' ? u : 0;
+	}
 
-		String emes = "";
+	/**
+	 * Encrypts or decrypts upper case letters with the keys of an array deck,
+	 * made a batch at a time
+	 * 
+	 * @param deck
+	 *            Deck that gives the keys, left where the last key was taken
+	 * @param s
+	 *            Upper case letters
+	 * @param encrypt
+	 *            True to encrypt, false to decrypt
+	 * @return Encrypted or decrypted letters
+	 */
+	static String cipher(ArrayDeck deck, String s, boolean encrypt) {
 		int len = s.length();
-		for (int i = 0; i < len; i++) {
-			int v = s.charAt(i) - 'A' + 1;
-			v = v + getKey();
-			if (v > 26) {
-				v = v - 26;
+		char[] out = new char[len];
+		byte[] keys = new byte[Math.min(len, STREAM_BUFFER)];
+		for (int i = 0; i < len; i += keys.length) {
+			int n = Math.min(keys.length, len - i);
+			deck.fill(keys, 0, n);
+			if (encrypt) {
+				for (int j = 0; j < n; j++) {
+					out[i + j] = encrypt(s.charAt(i + j), keys[j] & 0xFF);
+				}
+			} else {
+				for (int j = 0; j < n; j++) {
+					out[i + j] = decrypt(s.charAt(i + j), keys[j] & 0xFF);
+				}
 			}
-			char j = (char) (v - 1 + 'A');
-			emes = emes + j;
 		}
+		return new String(out);
+	}
 
-		// System.out.println();
-		// System.out.println(emes);
-
-		return emes;
+	/**
+	 * Encrypts a stream of text, as encrypt(String) does, in one pass and in
+	 * memory bounded by the buffer size: letters are read, upper cased and
+	 * encrypted a buffer at a time, and all other characters are skipped.
+	 * Both keep the same letters, those that upper case to A..Z.
+	 * The writer is flushed, but not closed.
+	 * 
+	 * @param in
+	 *            Text to be encrypted
+	 * @param out
+	 *            Gets the encrypted text, a sequence of upper case letters
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	public void encrypt(Reader in, Writer out) throws IOException {
+		char[] buf = new char[STREAM_BUFFER];
+		byte[] keys = new byte[STREAM_BUFFER];
+		ArrayDeck deck = ArrayDeck.from(deckRear);
+		try {
+			int n;
+			while ((n = in.read(buf)) >= 0) {
+				int m = 0;
+				for (int i = 0; i < n; i++) {
+					char c = upper(buf[i]);
+					if (c != 0) {
+						buf[m++] = c;
+					}
+				}
+				deck.fill(keys, 0, m);
+				for (int i = 0; i < m; i++) {
+					buf[i] = encrypt(buf[i], keys[i] & 0xFF);
+				}
+				out.write(buf, 0, m);
+			}
+			out.flush();
+		} finally {
+			deck.writeTo(deckRear);
+		}
 	}
 
 	/**
-	 * Decrypts a message, which consists of upper case letters only
+	 * Decrypts a stream of upper case letters, as decrypt(String) does, in one
+	 * pass and in memory bounded by the buffer size. Characters that are not
+	 * upper case letters A..Z, such as line breaks, are skipped. The writer is flushed, but
+	 * not closed.
 	 * 
-	 * @param message
-	 *            Message to be decrypted
-	 * @return Decrypted message, a sequence of upper case letters only
+	 * @param in
+	 *            Text to be decrypted
+	 * @param out
+	 *            Gets the decrypted text
+	 * @throws IOException
+	 *             If there is an error reading or writing
 	 */
-	public String decrypt(String message) {
-		String dmes = "";
-		int len = message.length();
-		for (int i = 0; i < len; i++) {
-			int v = message.charAt(i) - 'A' + 1;
-			v = v - getKey();
-			if (v < 0) {
-				v = v + 26;
+	public void decrypt(Reader in, Writer out) throws IOException {
+		char[] buf = new char[STREAM_BUFFER];
+		byte[] keys = new byte[STREAM_BUFFER];
+		ArrayDeck deck = ArrayDeck.from(deckRear);
+		try {
+			int n;
+			while ((n = in.read(buf)) >= 0) {
+				int m = 0;
+				for (int i = 0; i < n; i++) {
+					char c = buf[i];
+					if (c >= 'A' && c <= 'Z') {
+						buf[m++] = c;
+					}
+				}
+				deck.fill(keys, 0, m);
+				for (int i = 0; i < m; i++) {
+					buf[i] = decrypt(buf[i], keys[i] & 0xFF);
+				}
+				out.write(buf, 0, m);
 			}
-			char j = (char) (v - 1 + 'A');
-			dmes = dmes + j;
+			out.flush();
+		} finally {
+			deck.writeTo(deckRear);
 		}
+	}
 
-		// System.out.println();
-		// System.out.println(dmes);
+	/**
+	 * Encrypts one upper case letter with a key. Keys above 26, from decks of
+	 * more than 28 cards, count modulo 26.
+	 */
+	private static char encrypt(char c, int key) {
+		if (key > 26) {
+			key %= 26;
+		}
+		int v = c - 'A' + 1 + key;
+		if (v > 26) {
+			v = v - 26;
+		}
+		return (char) (v - 1 + 'A');
+	}
 
-		return dmes;
+	/**
+	 * Decrypts one upper case letter with a key
+	 */
+	private static char decrypt(char c, int key) {
+		if (key > 26) {
+			key %= 26;
+		}
+		int v = c - 'A' + 1 - key;
+		if (v < 0) {
+			v = v + 26;
+		}
+		return (char) (v - 1 + 'A');
 	}
 }
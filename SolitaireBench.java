@@ -0,0 +1,550 @@
+package solitaire;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import structures.Bench;
+
+/**
+ * This class times the Solitaire cipher on random decks from a seeded
+ * DeckFactory. It is run as
+ *
+ * <pre>
+ * java solitaire.SolitaireBench mode [count] [seed]
+ * </pre>
+ *
+ * where mode is keys, for the keys per second of ArrayDeck.nextKey against
+ * the linked list Solitaire.getKey, stream, for the throughput of
+ * encrypt(String) and encrypt(Reader, Writer) on messages from 1 KB up,
+ * batch, for the keys made a batch at a time against one per letter,
+ * service, for SolitaireService against the number of threads, seek, for
+ * the seek latency and chunked decryption of KeystreamIndex, sizes, for the
+ * keys and the byte cipher against the number of cards in the deck, or
+ * factory, for the decks per second of DeckFactory.
+ */
+public class SolitaireBench {
+
+	/**
+	 * Number of decks the keys are made from
+	 */
+	static final int DECKS = 100;
+
+	/**
+	 * Times the keys of ArrayDeck.nextKey against those of Solitaire.getKey,
+	 * from the same decks, which are put back in their starting state before
+	 * every run
+	 *
+	 * @param n
+	 *            Number of keys
+	 * @param seed
+	 *            Seed of the decks
+	 */
+	static void keys(long n, long seed) {
+		final int perDeck = (int) (n / DECKS);
+		final Solitaire[] lists = new Solitaire[DECKS];
+		final ArrayDeck[] arrays = new ArrayDeck[DECKS];
+		final byte[] start = new byte[DECKS * ArrayDeck.SIZE];
+		DeckFactory factory = new DeckFactory(seed);
+		for (int d = 0; d < DECKS; d++) {
+			lists[d] = new Solitaire();
+			lists[d].makeDeck(factory);
+			ArrayDeck.from(lists[d].deckRear).snapshot(start, d * ArrayDeck.SIZE);
+		}
+		long keys = (long) perDeck * DECKS;
+
+		report("Solitaire.getKey", keys, "keys", Bench.time(new Bench.Task() {
+			public void setup() {
+				for (int d = 0; d < DECKS; d++) {
+					ArrayDeck.restore(start, d * ArrayDeck.SIZE).writeTo(lists[d].deckRear);
+				}
+			}
+
+			public long run() {
+				long sum = 0;
+				for (int d = 0; d < DECKS; d++) {
+					for (int k = 0; k < perDeck; k++) {
+						sum += lists[d].getKey();
+					}
+				}
+				return sum;
+			}
+		}, 1, 5));
+		report("ArrayDeck.nextKey", keys, "keys", Bench.time(new Bench.Task() {
+			public void setup() {
+				for (int d = 0; d < DECKS; d++) {
+					arrays[d] = ArrayDeck.restore(start, d * ArrayDeck.SIZE);
+				}
+			}
+
+			public long run() {
+				long sum = 0;
+				for (int d = 0; d < DECKS; d++) {
+					for (int k = 0; k < perDeck; k++) {
+						sum += arrays[d].nextKey();
+					}
+				}
+				return sum;
+			}
+		}, 1, 5));
+	}
+
+	/**
+	 * Times encrypt(String) and encrypt(Reader, Writer) on messages of 1 KB,
+	 * 10 KB and so on up to a greatest size, of random words of both cases
+	 * and punctuation. The stream cipher reads a message made on the fly and
+	 * writes to a writer that only counts, so its memory does not grow with
+	 * the message. Small messages are encrypted many times in a run, so that
+	 * every run takes long enough to be timed.
+	 *
+	 * @param max
+	 *            Greatest number of characters in a message
+	 * @param seed
+	 *            Seed of the deck and the text
+	 */
+	static void stream(long max, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		final char[] text = new char[1 << 16];
+		for (int i = 0; i < text.length; i++) {
+			int r = random.nextInt(10);
+			text[i] = r == 0 ? ' ' : r == 1 ? '.' : (char) ((r < 4 ? 'A' : 'a') + random.nextInt(26));
+		}
+		final Solitaire sol = new Solitaire();
+		sol.makeDeck(new DeckFactory(seed));
+		for (long size = 1000; size <= max; size *= 10) {
+			final long chars = size;
+			final int reps = (int) Math.max(1, 10000000 / size);
+			StringBuilder sb = new StringBuilder((int) size);
+			for (long i = 0; i < size; i += text.length) {
+				sb.append(text, 0, (int) Math.min(text.length, size - i));
+			}
+			final String message = sb.toString();
+			sb = null;
+			report("encrypt(String), " + size + " chars", reps * size, "chars", Bench.time(new Bench.Task() {
+				public long run() {
+					long sum = 0;
+					for (int r = 0; r < reps; r++) {
+						sum += sol.encrypt(message).length();
+					}
+					return sum;
+				}
+			}, 1, 3));
+			report("encrypt(Reader, Writer), " + size + " chars", reps * size, "chars", Bench.time(new Bench.Task() {
+				public long run() {
+					Counter out = new Counter();
+					try {
+						for (int r = 0; r < reps; r++) {
+							sol.encrypt(new TextReader(text, chars), out);
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return out.count;
+				}
+			}, 1, 3));
+		}
+	}
+
+	/**
+	 * Times the encryption of a message with keys made one per letter, by
+	 * getKey and by nextKey, against keys made a batch at a time by fill, as
+	 * Solitaire.cipher does. The decks are put back in their starting state
+	 * before every run.
+	 *
+	 * @param n
+	 *            Number of letters
+	 * @param seed
+	 *            Seed of the deck and the letters
+	 */
+	static void batch(long n, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		char[] letters = new char[(int) n];
+		for (int i = 0; i < letters.length; i++) {
+			letters[i] = (char) ('A' + random.nextInt(26));
+		}
+		final String message = new String(letters);
+		letters = null;
+		final Solitaire sol = new Solitaire();
+		sol.makeDeck(new DeckFactory(seed));
+		final ArrayDeck start = ArrayDeck.from(sol.deckRear);
+		final ArrayDeck[] deck = new ArrayDeck[1];
+
+		report("getKey per letter", n, "letters", Bench.time(new Bench.Task() {
+			public void setup() {
+				start.writeTo(sol.deckRear);
+			}
+
+			public long run() {
+				char[] out = new char[message.length()];
+				for (int i = 0; i < out.length; i++) {
+					int v = message.charAt(i) - 'A' + sol.getKey();
+					out[i] = (char) ('A' + (v >= 26 ? v - 26 : v));
+				}
+				return out[out.length - 1];
+			}
+		}, 1, 3));
+		report("ArrayDeck.nextKey per letter", n, "letters", Bench.time(new Bench.Task() {
+			public void setup() {
+				deck[0] = start.copy();
+			}
+
+			public long run() {
+				char[] out = new char[message.length()];
+				for (int i = 0; i < out.length; i++) {
+					int v = message.charAt(i) - 'A' + deck[0].nextKey();
+					out[i] = (char) ('A' + (v >= 26 ? v - 26 : v));
+				}
+				return out[out.length - 1];
+			}
+		}, 1, 3));
+		report("ArrayDeck.fill batches, Solitaire.cipher", n, "letters", Bench.time(new Bench.Task() {
+			public void setup() {
+				deck[0] = start.copy();
+			}
+
+			public long run() {
+				return Solitaire.cipher(deck[0], message, true).charAt(message.length() - 1);
+			}
+		}, 1, 3));
+	}
+
+	/**
+	 * Times SolitaireService on a batch of messages of 10000 letters, each
+	 * with its own deck, in fixed pools of 1, 2, 4 and so on up to twice the
+	 * number of processors, against the same messages encrypted one after
+	 * the other in the calling thread
+	 *
+	 * @param n
+	 *            Number of letters in all the messages
+	 * @param seed
+	 *            Seed of the decks and the letters
+	 * @throws InterruptedException
+	 *             If the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             If a job fails
+	 */
+	static void service(long n, long seed) throws InterruptedException, ExecutionException {
+		final int length = 10000, count = (int) Math.max(1, n / length);
+		SplittableRandom random = new SplittableRandom(seed);
+		DeckFactory factory = new DeckFactory(seed);
+		final List<SolitaireService.Job> jobs = new ArrayList<SolitaireService.Job>(count);
+		for (int j = 0; j < count; j++) {
+			char[] letters = new char[length];
+			for (int i = 0; i < length; i++) {
+				letters[i] = (char) ('A' + random.nextInt(26));
+			}
+			jobs.add(new SolitaireService.Job(factory.makeDeck(ArrayDeck.SIZE), new String(letters)));
+		}
+		long letters = (long) count * length;
+
+		report("one after the other, " + count + " messages", letters, "letters", Bench.time(new Bench.Task() {
+			public long run() {
+				long sum = 0;
+				for (SolitaireService.Job job : jobs) {
+					sum += Solitaire.cipher(job.deck.copy(), job.message, true).charAt(0);
+				}
+				return sum;
+			}
+		}, 1, 5));
+		int cpus = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= Math.max(2 * cpus, 4); threads *= 2) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			final SolitaireService service = new SolitaireService(pool);
+			try {
+				report("SolitaireService, " + threads + " threads", letters, "letters", Bench.time(new Bench.Task() {
+					public long run() {
+						try {
+							return service.encrypt(jobs).get(0).charAt(0);
+						} catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						} catch (ExecutionException e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				}, 1, 5));
+			} finally {
+				pool.shutdown();
+			}
+		}
+		System.out.println(cpus + " processors");
+	}
+
+	/**
+	 * Times KeystreamIndex on a message: the seeks to random offsets, for a
+	 * few checkpoint intervals, against generating the keystream from the
+	 * start up to the offset; and the decryption of the whole message in
+	 * chunks in a pool of one thread per processor, against
+	 * Solitaire.cipher in one pass
+	 *
+	 * @param n
+	 *            Number of letters in the message
+	 * @param seed
+	 *            Seed of the deck, the letters and the offsets
+	 * @throws ExecutionException
+	 *             If a chunk fails
+	 */
+	static void seek(final long n, long seed) throws ExecutionException {
+		final SplittableRandom random = new SplittableRandom(seed);
+		char[] letters = new char[(int) n];
+		for (int i = 0; i < letters.length; i++) {
+			letters[i] = (char) ('A' + random.nextInt(26));
+		}
+		final ArrayDeck deck = new DeckFactory(seed).makeDeck(ArrayDeck.SIZE);
+		final String message = Solitaire.cipher(deck.copy(), new String(letters), true);
+		letters = null;
+		final int seeks = 100;
+
+		final int replays = 10; // a replay takes n/2 keys on average
+		latency("replay from the start", replays, Bench.time(new Bench.Task() {
+			public long run() {
+				long sum = 0;
+				for (int i = 0; i < replays; i++) {
+					ArrayDeck d = deck.copy();
+					d.skip(random.nextLong(n));
+					sum += d.nextKey();
+				}
+				return sum;
+			}
+		}, 1, 3));
+		for (int interval = 256; interval <= 65536; interval *= 16) {
+			final int every = interval;
+			final KeystreamIndex[] index = new KeystreamIndex[1];
+			report("KeystreamIndex, interval " + every, n, "keys", Bench.time(new Bench.Task() {
+				public long run() {
+					index[0] = new KeystreamIndex(deck, n, every);
+					return index[0].checkpoints().length;
+				}
+			}, 1, 3));
+			latency("KeystreamIndex.seek, interval " + every, seeks, Bench.time(new Bench.Task() {
+				public long run() {
+					long sum = 0;
+					for (int i = 0; i < seeks; i++) {
+						sum += index[0].seek(random.nextLong(n)).nextKey();
+					}
+					return sum;
+				}
+			}, 5, 11));
+		}
+
+		report("Solitaire.cipher, one pass", n, "letters", Bench.time(new Bench.Task() {
+			public long run() {
+				return Solitaire.cipher(deck.copy(), message, false).charAt(0);
+			}
+		}, 1, 3));
+		int cpus = Runtime.getRuntime().availableProcessors();
+		final ExecutorService pool = Executors.newFixedThreadPool(cpus);
+		try {
+			final KeystreamIndex index = new KeystreamIndex(deck, n, 65536);
+			report("KeystreamIndex.decrypt, " + cpus + " threads", n, "letters", Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						return index.decrypt(message, pool).charAt(0);
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					} catch (ExecutionException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}, 1, 3));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Times ArrayDeck.nextKey and the byte cipher on decks of 4, 28, 54, 128
+	 * and 255 cards, on random bytes
+	 *
+	 * @param n
+	 *            Number of keys and of bytes
+	 * @param seed
+	 *            Seed of the decks and the bytes
+	 */
+	static void sizes(final long n, long seed) {
+		final byte[] bytes = new byte[(int) n];
+		new Random(seed).nextBytes(bytes);
+		int[] sizes = { 4, ArrayDeck.SIZE, ArrayDeck.SCHNEIER_SIZE, 128, ArrayDeck.MAX_SIZE };
+		for (int size : sizes) {
+			final ArrayDeck start = new DeckFactory(seed).makeDeck(size);
+			final ArrayDeck[] deck = new ArrayDeck[1];
+			report("ArrayDeck.nextKey, " + size + " cards", n, "keys", Bench.time(new Bench.Task() {
+				public void setup() {
+					deck[0] = start.copy();
+				}
+
+				public long run() {
+					long sum = 0;
+					for (long k = 0; k < n; k++) {
+						sum += deck[0].nextKey();
+					}
+					return sum;
+				}
+			}, 1, 3));
+			report("ArrayDeck.encrypt(byte[]), " + size + " cards", n, "bytes", Bench.time(new Bench.Task() {
+				public void setup() {
+					deck[0] = start.copy();
+				}
+
+				public long run() {
+					deck[0].encrypt(bytes, 0, bytes.length);
+					return bytes[0];
+				}
+			}, 1, 3));
+		}
+	}
+
+	/**
+	 * Times the making of decks: linked list decks by Solitaire.makeDeck,
+	 * array decks one at a time by DeckFactory.makeDeck, and decks of 28 and
+	 * 54 cards at once into a byte array by DeckFactory.makeDecks, from a
+	 * seeded SplittableRandom and from a SecureRandom
+	 *
+	 * @param n
+	 *            Number of decks
+	 * @param seed
+	 *            Seed of the factories
+	 */
+	static void factory(final long n, long seed) {
+		final DeckFactory factory = new DeckFactory(seed);
+		final Solitaire sol = new Solitaire();
+		report("Solitaire.makeDeck, 28 cards", n, "decks", Bench.time(new Bench.Task() {
+			public long run() {
+				long sum = 0;
+				for (long d = 0; d < n; d++) {
+					sol.makeDeck(factory);
+					sum += sol.deckRear.cardValue;
+				}
+				return sum;
+			}
+		}, 1, 5));
+		report("DeckFactory.makeDeck, 28 cards", n, "decks", Bench.time(new Bench.Task() {
+			public long run() {
+				long sum = 0;
+				for (long d = 0; d < n; d++) {
+					sum += factory.makeDeck(ArrayDeck.SIZE).deck[0];
+				}
+				return sum;
+			}
+		}, 1, 5));
+		final byte[] buf = new byte[(int) n * ArrayDeck.SCHNEIER_SIZE];
+		final DeckFactory secure = new DeckFactory(new SecureRandom());
+		for (final int size : new int[] { ArrayDeck.SIZE, ArrayDeck.SCHNEIER_SIZE }) {
+			report("DeckFactory.makeDecks, " + size + " cards", n, "decks", Bench.time(new Bench.Task() {
+				public long run() {
+					factory.makeDecks(buf, 0, (int) n, size);
+					return buf[0];
+				}
+			}, 1, 5));
+			report("DeckFactory.makeDecks, " + size + " cards, secure", n, "decks", Bench.time(new Bench.Task() {
+				public long run() {
+					secure.makeDecks(buf, 0, (int) n, size);
+					return buf[0];
+				}
+			}, 1, 5));
+		}
+	}
+
+	/**
+	 * Reader of a number of characters, a block of text over and over
+	 */
+	private static class TextReader extends Reader {
+		private char[] text;
+		private long left;
+		private int at;
+
+		TextReader(char[] text, long length) {
+			this.text = text;
+			left = length;
+		}
+
+		public int read(char[] buf, int off, int len) {
+			if (left == 0) {
+				return -1;
+			}
+			int n = (int) Math.min(Math.min(len, left), text.length - at);
+			System.arraycopy(text, at, buf, off, n);
+			at = (at + n) % text.length;
+			left -= n;
+			return n;
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 * Writer that only counts the characters written to it
+	 */
+	private static class Counter extends Writer {
+		long count;
+
+		public void write(char[] buf, int off, int len) {
+			count += len;
+		}
+
+		public void flush() {
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 * Prints the times of a task, and the things done per second
+	 */
+	private static void report(String name, long count, String unit, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.0f %s/s", name, result, result.perSecond(count), unit));
+	}
+
+	/**
+	 * Prints the times of a task, and the time of each of the things done
+	 */
+	private static void latency(String name, long count, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.1f us each", name, result, result.nanosEach(count) / 1e3));
+	}
+
+	/**
+	 * Runs a benchmark. The arguments are the mode, a count, such as the
+	 * number of keys or the size of the largest message, which defaults to
+	 * 10000000, or 1000000 decks for factory, and the seed, which defaults to
+	 * 1.
+	 *
+	 * @param args
+	 *            Mode, count, seed
+	 * @throws InterruptedException
+	 *             If the main thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             If a job of the service fails
+	 */
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		String mode = args.length > 0 ? args[0] : "keys";
+		long n = args.length > 1 ? Long.parseLong(args[1]) : mode.equals("factory") ? 1000000 : 10000000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		if (mode.equals("keys")) {
+			keys(n, seed);
+		} else if (mode.equals("stream")) {
+			stream(n, seed);
+		} else if (mode.equals("batch")) {
+			batch(n, seed);
+		} else if (mode.equals("service")) {
+			service(n, seed);
+		} else if (mode.equals("seek")) {
+			seek(n, seed);
+		} else if (mode.equals("sizes")) {
+			sizes(n, seed);
+		} else if (mode.equals("factory")) {
+			factory(n, seed);
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package solitaire;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * This class checks the faster Solitaire code against the linked list deck
+ * of Solitaire on many random decks from a seeded generator, and throws an
+ * exception at the first deck on which they disagree. It is run as
+ *
+ * <pre>
+ * java solitaire.SolitaireCheck [decks] [seed]
+ * </pre>
+ */
+public class SolitaireCheck {
+
+	/**
+	 * Checks that ArrayDeck.nextKey gives the keys of Solitaire.getKey, keeps
+	 * the positions of the jokers, and ends in the state of the linked list
+	 * deck, which writeTo then copies into another list
+	 *
+	 * @param random
+	 *            Source of the decks
+	 * @throws IllegalStateException
+	 *             If the decks differ
+	 */
+	static void arrayDeck(Random random) throws IllegalStateException {
+		Solitaire sol = new Solitaire();
+		sol.makeDeck(new DeckFactory(random.nextLong()));
+		ArrayDeck deck = ArrayDeck.from(sol.deckRear);
+		for (int k = 0; k < 200; k++) {
+			int expected = sol.getKey(), actual = deck.nextKey();
+			if (expected != actual) {
+				throw new IllegalStateException("ArrayDeck.nextKey gave " + actual + ", getKey " + expected);
+			}
+			if (deck.deck[deck.posA] != deck.jokerA || deck.deck[deck.posB] != deck.jokerB) {
+				throw new IllegalStateException("ArrayDeck lost a joker: " + Arrays.toString(deck.deck));
+			}
+		}
+		Solitaire other = new Solitaire();
+		other.makeDeck(new DeckFactory(random.nextLong()));
+		deck.writeTo(other.deckRear);
+		if (!Arrays.equals(ArrayDeck.from(sol.deckRear).snapshot(), ArrayDeck.from(other.deckRear).snapshot())) {
+			throw new IllegalStateException("ArrayDeck.writeTo differs from the deck of getKey");
+		}
+	}
+
+	/**
+	 * Characters of the random messages: letters of both cases, letters whose
+	 * upper case is not A..Z, and others
+	 */
+	static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ \n.,!0\u00e9\u00df\u00ff\u0131\u03b1";
+
+	/**
+	 * Checks that encrypt(String) and encrypt(Reader, Writer) keep the same
+	 * letters and give the same result from the same deck, and that both
+	 * decrypts give back those letters and leave the decks alike
+	 *
+	 * @param random
+	 *            Source of the decks and messages
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 * @throws IllegalStateException
+	 *             If the results differ
+	 */
+	static void streams(Random random) throws IOException, IllegalStateException {
+		long seed = random.nextLong();
+		Solitaire a = new Solitaire(), b = new Solitaire();
+		a.makeDeck(new DeckFactory(seed));
+		b.makeDeck(new DeckFactory(seed));
+		int len = random.nextInt(random.nextInt(20) == 0 ? 3 * Solitaire.STREAM_BUFFER : 300);
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+		}
+		String message = sb.toString();
+
+		String encrypted = a.encrypt(message);
+		StringWriter w = new StringWriter();
+		b.encrypt(new StringReader(message), w);
+		if (!encrypted.equals(w.toString())) {
+			throw new IllegalStateException("encrypt(Reader, Writer) differs from encrypt(String) on " + message);
+		}
+		a.makeDeck(new DeckFactory(seed));
+		b.makeDeck(new DeckFactory(seed));
+		String decrypted = a.decrypt(encrypted);
+		w = new StringWriter();
+		b.decrypt(new StringReader(encrypted + "\n"), w);
+		// decrypt gives '@' for 'Z', as it always has
+		if (!decrypted.replace('@', 'Z').equals(Solitaire.letters(message)) || !decrypted.equals(w.toString())) {
+			throw new IllegalStateException("decrypt does not give back the letters of " + message);
+		}
+		if (!Arrays.equals(ArrayDeck.from(a.deckRear).snapshot(), ArrayDeck.from(b.deckRear).snapshot())) {
+			throw new IllegalStateException("String and stream ciphers leave different decks");
+		}
+	}
+
+	/**
+	 * Checks that a seeded DeckFactory makes the same decks every time, one
+	 * at a time and in bulk, and that every deck made in bulk is a whole deck
+	 *
+	 * @param random
+	 *            Source of the seeds and sizes
+	 * @throws IllegalStateException
+	 *             If two runs differ, or a deck is not a permutation
+	 */
+	static void deterministic(Random random) throws IllegalStateException {
+		long seed = random.nextLong();
+		int size = ArrayDeck.MIN_SIZE + random.nextInt(ArrayDeck.MAX_SIZE - ArrayDeck.MIN_SIZE + 1);
+		int count = random.nextInt(3 * DeckFactory.BLOCK), off = random.nextInt(10);
+		byte[] a = new byte[off + count * size], b = new byte[off + count * size];
+		new DeckFactory(seed).makeDecks(a, off, count, size);
+		new DeckFactory(seed).makeDecks(b, off, count, size);
+		if (!Arrays.equals(a, b)) {
+			throw new IllegalStateException("DeckFactory.makeDecks differs with seed " + seed);
+		}
+		for (int d = 0; d < count; d++) {
+			ArrayDeck.restore(a, off + d * size, size); // throws if not a permutation
+		}
+		Solitaire s = new Solitaire(), t = new Solitaire();
+		s.makeDeck(new DeckFactory(seed));
+		t.makeDeck(new DeckFactory(seed));
+		if (!Arrays.equals(ArrayDeck.from(s.deckRear).snapshot(), ArrayDeck.from(t.deckRear).snapshot())) {
+			throw new IllegalStateException("Solitaire.makeDeck differs with seed " + seed);
+		}
+	}
+
+	/**
+	 * Checks that every order of a small deck is about equally likely, one
+	 * deck at a time and in bulk, by the chi-square statistic of the counts
+	 * of the orders
+	 *
+	 * @param size
+	 *            Number of cards, small enough that size! orders can be
+	 *            counted
+	 * @param decks
+	 *            Number of decks to make
+	 * @param seed
+	 *            Seed of the factory
+	 * @throws IllegalStateException
+	 *             If the counts are too uneven
+	 */
+	static void uniform(int size, int decks, long seed) throws IllegalStateException {
+		DeckFactory factory = new DeckFactory(seed);
+		HashMap<String,Integer> single = new HashMap<String,Integer>();
+		for (int d = 0; d < decks; d++) {
+			count(single, Arrays.toString(factory.shuffle(size)));
+		}
+		HashMap<String,Integer> bulk = new HashMap<String,Integer>();
+		byte[] buf = new byte[decks * size];
+		factory.makeDecks(buf, 0, decks, size);
+		for (int d = 0; d < decks; d++) {
+			count(bulk, Arrays.toString(Arrays.copyOfRange(buf, d * size, (d + 1) * size)));
+		}
+		int orders = 1;
+		for (int i = 2; i <= size; i++) {
+			orders *= i;
+		}
+		uniform("DeckFactory.shuffle", single, orders, decks);
+		uniform("DeckFactory.makeDecks", bulk, orders, decks);
+	}
+
+	private static void count(HashMap<String,Integer> counts, String order) {
+		Integer c = counts.get(order);
+		counts.put(order, c == null ? 1 : c + 1);
+	}
+
+	/**
+	 * Throws an exception unless every order was seen, and the chi-square
+	 * statistic of the counts is below a bound that an even shuffle exceeds
+	 * with a chance of about one in a thousand. The seeds are fixed, so a run
+	 * that passes always passes.
+	 */
+	private static void uniform(String name, HashMap<String,Integer> counts, int orders, int decks)
+			throws IllegalStateException {
+		if (counts.size() != orders) {
+			throw new IllegalStateException(name + " made " + counts.size() + " of " + orders + " orders");
+		}
+		double expected = (double) decks / orders, chi = 0;
+		for (int c : counts.values()) {
+			chi += (c - expected) * (c - expected) / expected;
+		}
+		// mean plus 4 standard deviations of chi-square with orders-1 degrees of freedom
+		double bound = orders - 1 + 4 * Math.sqrt(2.0 * (orders - 1));
+		if (chi > bound) {
+			throw new IllegalStateException(name + " is skewed: chi-square " + chi + " over " + bound);
+		}
+	}
+
+	/**
+	 * Runs the checks. The arguments are the number of decks per check, which
+	 * defaults to 1000, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Number of decks, seed
+	 * @throws IOException
+	 *             If there is an error reading or writing a message
+	 */
+	public static void main(String[] args) throws IOException {
+		int decks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		for (int i = 0; i < decks; i++) {
+			arrayDeck(random);
+		}
+		System.out.println("ArrayDeck ok");
+		for (int i = 0; i < decks; i++) {
+			streams(random);
+		}
+		System.out.println("String and stream ciphers ok");
+		for (int i = 0; i < decks / 10; i++) {
+			deterministic(random);
+		}
+		uniform(4, 240000, random.nextLong());
+		uniform(5, 600000, random.nextLong());
+		System.out.println("DeckFactory ok");
+	}
+}
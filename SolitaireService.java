@@ -0,0 +1,128 @@
+package solitaire;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class encrypts or decrypts many independent messages at the same time,
+ * each with its own deck. Every job gets its own copy of its deck, taken when
+ * the job is submitted, so jobs share no state, and the decks given by the
+ * caller are not changed. The results are returned in the order of the jobs,
+ * and are the same as those of Solitaire.encrypt and Solitaire.decrypt run
+ * one after the other, whatever the number of threads.
+ */
+public class SolitaireService {
+
+	/**
+	 * A message with the deck to encrypt or decrypt it with
+	 */
+	public static class Job {
+		/**
+		 * Deck, in its state for the first letter of the message
+		 */
+		ArrayDeck deck;
+
+		/**
+		 * Message
+		 */
+		String message;
+
+		/**
+		 * Initializes this job
+		 *
+		 * @param deck
+		 *            Deck, in its state for the first letter of the message
+		 * @param message
+		 *            Message
+		 */
+		public Job(ArrayDeck deck, String message) {
+			this.deck = deck;
+			this.message = message;
+		}
+	}
+
+	/**
+	 * Executor that runs the jobs
+	 */
+	private ExecutorService pool;
+
+	/**
+	 * Initializes this service to run jobs in the common fork-join pool
+	 */
+	public SolitaireService() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initializes this service to run jobs in a given executor
+	 *
+	 * @param pool
+	 *            Executor that runs the jobs
+	 */
+	public SolitaireService(ExecutorService pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Encrypts the messages of a batch of jobs, as Solitaire.encrypt does
+	 *
+	 * @param jobs
+	 *            Jobs
+	 * @return Encrypted messages, in the order of the jobs
+	 * @throws InterruptedException
+	 *             If the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             If a job fails, for instance because its deck is not valid
+	 */
+	public List<String> encrypt(List<Job> jobs) throws InterruptedException, ExecutionException {
+		return run(jobs, true);
+	}
+
+	/**
+	 * Decrypts the messages of a batch of jobs, as Solitaire.decrypt does
+	 *
+	 * @param jobs
+	 *            Jobs
+	 * @return Decrypted messages, in the order of the jobs
+	 * @throws InterruptedException
+	 *             If the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             If a job fails
+	 */
+	public List<String> decrypt(List<Job> jobs) throws InterruptedException, ExecutionException {
+		return run(jobs, false);
+	}
+
+	private List<String> run(List<Job> jobs, final boolean encrypt)
+			throws InterruptedException, ExecutionException {
+		ArrayList<Future<String>> futures = new ArrayList<Future<String>>(jobs.size());
+		for (Job job : jobs) {
+			final ArrayDeck deck = job.deck.copy();
+			final String message = job.message;
+			futures.add(pool.submit(new Callable<String>() {
+				public String call() {
+					String s = encrypt ? Solitaire.letters(message) : message;
+					return Solitaire.cipher(deck, s, encrypt);
+				}
+			}));
+		}
+		ArrayList<String> results = new ArrayList<String>(futures.size());
+		try {
+			for (Future<String> f : futures) {
+				results.add(f.get());
+			}
+		} finally {
+			if (results.size() < futures.size()) { // failed, drop the other jobs
+				for (Future<String> f : futures) {
+					f.cancel(true);
+				}
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,377 @@
+package solitaire;
+
+import structures.Bench;
+
+/**
+ * This class measures the Solitaire cipher over many random decks: the time
+ * of each of the four steps and of a whole key, for both the linked list deck
+ * of Solitaire and ArrayDeck, the rate of keys and of encrypted and decrypted
+ * letters, how often a key has to be redone because it hit a joker, and how
+ * the key values are spread over 1..26.
+ *
+ * Every measurement is made twice, and only the second one is kept, so that
+ * the code has been compiled by the time it is timed. A single step takes
+ * less time than the clock can resolve, so every step is run many times in a
+ * row on every deck, from the same starting decks for every step, and timed
+ * with structures.Bench; its time is that of all the calls divided by their
+ * number. The key and cipher rates are timed over whole runs. The decks come
+ * from a seeded DeckFactory, so two runs see the same decks.
+ */
+public class SolitaireStats {
+
+	/**
+	 * Names of the steps, in the order of their times in a report
+	 */
+	static final String[] STEPS = { "jokerA", "jokerB", "tripleCut", "countCut" };
+
+	/**
+	 * Number of untimed and of timed runs of every step
+	 */
+	static final int WARMUPS = 1, RUNS = 5;
+
+	/**
+	 * Gets a sum of the keys timed, so that they cannot be optimized away
+	 */
+	static volatile int blackhole;
+
+	/**
+	 * Results of a run
+	 */
+	public static class Report {
+		/**
+		 * Number of decks
+		 */
+		public int decks;
+
+		/**
+		 * Number of keys made from every deck
+		 */
+		public int keysPerDeck;
+
+		/**
+		 * Average time of each step on the linked list deck, in nanoseconds
+		 */
+		public double[] listStepNanos = new double[STEPS.length];
+
+		/**
+		 * Average time of each step on an ArrayDeck, in nanoseconds
+		 */
+		public double[] arrayStepNanos = new double[STEPS.length];
+
+		/**
+		 * Keys per second of Solitaire.getKey
+		 */
+		public double listKeysPerSecond;
+
+		/**
+		 * Keys per second of ArrayDeck.nextKey
+		 */
+		public double arrayKeysPerSecond;
+
+		/**
+		 * Keys per second of ArrayDeck.fill
+		 */
+		public double fillKeysPerSecond;
+
+		/**
+		 * Letters per second of Solitaire.encrypt
+		 */
+		public double encryptPerSecond;
+
+		/**
+		 * Letters per second of Solitaire.decrypt
+		 */
+		public double decryptPerSecond;
+
+		/**
+		 * Number of times the four steps were run, and of those how many
+		 * ended on a joker and had to be run again
+		 */
+		public long rounds, retries;
+
+		/**
+		 * Number of keys of each value, keyCounts[v] for key v, 1..26
+		 */
+		public long[] keyCounts = new long[27];
+
+		/**
+		 * Gives the share of rounds that had to be run again
+		 *
+		 * @return Retry rate, 0 to 1
+		 */
+		public double retryRate() {
+			return rounds == 0 ? 0 : (double) retries / rounds;
+		}
+
+		/**
+		 * Gives the chi-square statistic of the key counts against the
+		 * uniform spread over 1..26. With 25 degrees of freedom, values much
+		 * above 25 point to a skewed keystream.
+		 *
+		 * @return Chi-square statistic
+		 */
+		public double chiSquare() {
+			long total = 0;
+			for (int v = 1; v <= 26; v++) {
+				total += keyCounts[v];
+			}
+			double expected = total / 26.0, chi = 0;
+			for (int v = 1; v <= 26; v++) {
+				double d = keyCounts[v] - expected;
+				chi += d * d / expected;
+			}
+			return chi;
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(decks + " decks, " + keysPerDeck + " keys per deck\n");
+			for (int s = 0; s < STEPS.length; s++) {
+				sb.append(String.format("%-10s list %8.1f ns  array %8.1f ns%n", STEPS[s], listStepNanos[s],
+						arrayStepNanos[s]));
+			}
+			sb.append(String.format("keys/s    getKey %.0f  nextKey %.0f  fill %.0f%n", listKeysPerSecond,
+					arrayKeysPerSecond, fillKeysPerSecond));
+			sb.append(String.format("letters/s encrypt %.0f  decrypt %.0f%n", encryptPerSecond, decryptPerSecond));
+			sb.append(String.format("retries   %d of %d rounds (%.4f)%n", retries, rounds, retryRate()));
+			sb.append("keys     ");
+			for (int v = 1; v <= 26; v++) {
+				sb.append(" " + v + ":" + keyCounts[v]);
+			}
+			sb.append(String.format("%nchi-square %.2f (25 degrees of freedom)", chiSquare()));
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Measures the cipher over random decks
+	 *
+	 * @param decks
+	 *            Number of decks
+	 * @param keysPerDeck
+	 *            Number of keys to make from every deck
+	 * @param seed
+	 *            Seed of the decks
+	 * @return Report of the measurements
+	 */
+	public static Report measure(int decks, int keysPerDeck, long seed) {
+		Report report = null;
+		for (int round = 0; round < 2; round++) { // the first round warms up
+			report = new Report();
+			report.decks = decks;
+			report.keysPerDeck = keysPerDeck;
+			measureSteps(report, new DeckFactory(seed));
+			measureKeys(report, new DeckFactory(seed));
+			measureCipher(report, new DeckFactory(seed));
+		}
+		return report;
+	}
+
+	/**
+	 * Times every step by running it keysPerDeck times in a row on every deck,
+	 * on the linked list decks and on ArrayDecks. Then counts retries and key
+	 * values by running the steps of getKey round by round, untimed.
+	 */
+	private static void measureSteps(Report report, DeckFactory factory) {
+		final int decks = report.decks, repeats = report.keysPerDeck;
+		final Solitaire[] lists = new Solitaire[decks];
+		final ArrayDeck[] arrays = new ArrayDeck[decks];
+		final byte[] start = new byte[decks * ArrayDeck.SIZE];
+		for (int d = 0; d < decks; d++) {
+			lists[d] = new Solitaire();
+			lists[d].makeDeck(factory);
+			ArrayDeck.from(lists[d].deckRear).snapshot(start, d * ArrayDeck.SIZE);
+		}
+		long calls = (long) decks * repeats;
+		for (int s = 0; s < STEPS.length; s++) {
+			final int step = s;
+			report.listStepNanos[s] = Bench.time(new Bench.Task() {
+				public void setup() {
+					for (int d = 0; d < decks; d++) {
+						ArrayDeck.restore(start, d * ArrayDeck.SIZE).writeTo(lists[d].deckRear);
+					}
+				}
+
+				public long run() {
+					for (int d = 0; d < decks; d++) {
+						repeat(lists[d], step, repeats);
+					}
+					return decks == 0 ? 0 : lists[0].deckRear.cardValue;
+				}
+			}, WARMUPS, RUNS).nanosEach(calls);
+			report.arrayStepNanos[s] = Bench.time(new Bench.Task() {
+				public void setup() {
+					for (int d = 0; d < decks; d++) {
+						arrays[d] = ArrayDeck.restore(start, d * ArrayDeck.SIZE);
+					}
+				}
+
+				public long run() {
+					for (int d = 0; d < decks; d++) {
+						repeat(arrays[d], step, repeats);
+					}
+					return decks == 0 ? 0 : arrays[0].deck[0];
+				}
+			}, WARMUPS, RUNS).nanosEach(calls);
+		}
+
+		for (int d = 0; d < decks; d++) {
+			ArrayDeck deck = ArrayDeck.restore(start, d * ArrayDeck.SIZE);
+			for (int k = 0; k < repeats; k++) {
+				while (true) {
+					deck.jokerA();
+					deck.jokerB();
+					deck.tripleCut();
+					deck.countCut();
+					report.rounds++;
+					int front = deck.deck[0] & 0xFF;
+					int key = deck.deck[front == deck.jokerB ? deck.jokerA : front] & 0xFF;
+					if (key != deck.jokerA && key != deck.jokerB) {
+						report.keyCounts[key]++;
+						break;
+					}
+					report.retries++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a step a number of times in a row on a linked list deck
+	 */
+	private static void repeat(Solitaire sol, int step, int repeats) {
+		switch (step) {
+		case 0:
+			for (int i = 0; i < repeats; i++) {
+				sol.jokerA();
+			}
+			break;
+		case 1:
+			for (int i = 0; i < repeats; i++) {
+				sol.jokerB();
+			}
+			break;
+		case 2:
+			for (int i = 0; i < repeats; i++) {
+				sol.tripleCut();
+			}
+			break;
+		default:
+			for (int i = 0; i < repeats; i++) {
+				sol.countCut();
+			}
+		}
+	}
+
+	/**
+	 * Runs a step a number of times in a row on an ArrayDeck
+	 */
+	private static void repeat(ArrayDeck deck, int step, int repeats) {
+		switch (step) {
+		case 0:
+			for (int i = 0; i < repeats; i++) {
+				deck.jokerA();
+			}
+			break;
+		case 1:
+			for (int i = 0; i < repeats; i++) {
+				deck.jokerB();
+			}
+			break;
+		case 2:
+			for (int i = 0; i < repeats; i++) {
+				deck.tripleCut();
+			}
+			break;
+		default:
+			for (int i = 0; i < repeats; i++) {
+				deck.countCut();
+			}
+		}
+	}
+
+	/**
+	 * Times whole keys, with getKey, nextKey and fill
+	 */
+	private static void measureKeys(Report report, DeckFactory factory) {
+		Solitaire sol = new Solitaire();
+		byte[] keys = new byte[report.keysPerDeck];
+		long listNanos = 0, arrayNanos = 0, fillNanos = 0;
+		int sink = 0; // keeps the keys from being optimized away
+		for (int d = 0; d < report.decks; d++) {
+			sol.makeDeck(factory);
+			ArrayDeck deck = ArrayDeck.from(sol.deckRear), copy = deck.copy();
+
+			long t0 = System.nanoTime();
+			for (int k = 0; k < report.keysPerDeck; k++) {
+				sink += sol.getKey();
+			}
+			long t1 = System.nanoTime();
+			for (int k = 0; k < report.keysPerDeck; k++) {
+				sink += deck.nextKey();
+			}
+			long t2 = System.nanoTime();
+			copy.fill(keys, 0, keys.length);
+			long t3 = System.nanoTime();
+			sink += keys.length > 0 ? keys[0] : 0;
+
+			listNanos += t1 - t0;
+			arrayNanos += t2 - t1;
+			fillNanos += t3 - t2;
+		}
+		blackhole = sink;
+		long total = (long) report.decks * report.keysPerDeck;
+		report.listKeysPerSecond = rate(total, listNanos);
+		report.arrayKeysPerSecond = rate(total, arrayNanos);
+		report.fillKeysPerSecond = rate(total, fillNanos);
+	}
+
+	/**
+	 * Times encrypt and decrypt on random messages
+	 */
+	private static void measureCipher(Report report, DeckFactory factory) {
+		char[] letters = new char[report.keysPerDeck];
+		int[] values = factory.shuffle(26);
+		for (int i = 0; i < letters.length; i++) {
+			letters[i] = (char) ('A' + values[i % 26] - 1);
+		}
+		String message = new String(letters);
+		Solitaire sol = new Solitaire();
+		long encryptNanos = 0, decryptNanos = 0;
+		for (int d = 0; d < report.decks; d++) {
+			sol.makeDeck(factory);
+			ArrayDeck start = ArrayDeck.from(sol.deckRear);
+			long t0 = System.nanoTime();
+			String encrypted = sol.encrypt(message);
+			long t1 = System.nanoTime();
+			start.writeTo(sol.deckRear);
+			long t2 = System.nanoTime();
+			sol.decrypt(encrypted);
+			long t3 = System.nanoTime();
+			encryptNanos += t1 - t0;
+			decryptNanos += t3 - t2;
+		}
+		long total = (long) report.decks * message.length();
+		report.encryptPerSecond = rate(total, encryptNanos);
+		report.decryptPerSecond = rate(total, decryptNanos);
+	}
+
+	private static double rate(long count, long nanos) {
+		return nanos == 0 ? 0 : count / (nanos / 1e9);
+	}
+
+	/**
+	 * Runs the measurements and prints the report. The arguments are the
+	 * number of decks, the number of keys per deck and the seed, which
+	 * default to 1000, 1000 and 1.
+	 *
+	 * @param args
+	 *            Number of decks, number of keys per deck, seed
+	 */
+	public static void main(String[] args) {
+		int decks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int keysPerDeck = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		System.out.println(measure(decks, keysPerDeck, seed));
+	}
+}
@@ -0,0 +1,193 @@
+package apps;
+
+/**
+ * This class sorts strings of any length and content in lexicographic
+ * (String.compareTo) order. Unlike Radixsort, the strings are left aligned and
+ * are not numbers: a string that is a prefix of another comes first.
+ *
+ * Large ranges are distributed on one character at a time with an MSD radix
+ * sort, after skipping the prefix that all strings of the range have in
+ * common. Ranges that are smaller, or that have characters outside 0..255,
+ * go to a multikey (three-way string) quicksort, and very small ranges to
+ * insertion sort. No character before the current depth is ever looked at
+ * again, so the work done is close to the number of characters needed to
+ * tell the strings apart.
+ */
+public class StringRadixsort {
+
+	/**
+	 * Ranges at most this long are sorted with insertion sort
+	 */
+	static final int INSERTION_CUTOFF = 16;
+
+	/**
+	 * Ranges shorter than this are sorted with multikey quicksort
+	 */
+	static final int MSD_CUTOFF = 1 << 10;
+
+	/**
+	 * Number of MSD buckets: one for strings that have ended, one per
+	 * character value 0..255
+	 */
+	static final int BUCKETS = 257;
+
+	/**
+	 * Scratch array for the MSD distribution, grown as needed
+	 */
+	private String[] tmp;
+
+	/**
+	 * Initializes this sorter, with no scratch array yet
+	 */
+	public StringRadixsort() {
+		tmp = new String[0];
+	}
+
+	/**
+	 * Sorts strings in ascending lexicographic order
+	 *
+	 * @param a
+	 *            Strings to be sorted, sorted in place
+	 */
+	public void sort(String[] a) {
+		if (tmp.length < a.length) {
+			tmp = new String[a.length];
+		}
+		msd(a, 0, a.length, 0);
+	}
+
+	/**
+	 * Character at a depth, plus 1, or 0 if the string has ended
+	 */
+	private static int charAt(String s, int d) {
+		return d < s.length() ? s.charAt(d) + 1 : 0;
+	}
+
+	/**
+	 * Sorts a[lo..hi), all of whose strings agree on their first d characters
+	 */
+	private void msd(String[] a, int lo, int hi, int d) {
+		if (hi - lo < MSD_CUTOFF) {
+			multikey(a, lo, hi, d);
+			return;
+		}
+		d += commonPrefix(a, lo, hi, d);
+
+		int[] count = new int[BUCKETS + 1];
+		for (int i = lo; i < hi; i++) {
+			int c = charAt(a[i], d);
+			if (c >= BUCKETS) {
+				multikey(a, lo, hi, d);
+				return;
+			}
+			count[c + 1]++;
+		}
+		for (int c = 0; c < BUCKETS; c++) {
+			count[c + 1] += count[c];
+		}
+		for (int i = lo; i < hi; i++) {
+			tmp[lo + count[charAt(a[i], d)]++] = a[i];
+		}
+		System.arraycopy(tmp, lo, a, lo, hi - lo);
+
+		// count[c] is now the end of bucket c, bucket 0 holds equal strings
+		for (int c = 1; c < BUCKETS; c++) {
+			int start = lo + count[c - 1], end = lo + count[c];
+			if (end - start > 1) {
+				msd(a, start, end, d + 1);
+			}
+		}
+	}
+
+	/**
+	 * Length of the prefix, from depth d on, that all strings in a[lo..hi)
+	 * have in common
+	 */
+	private static int commonPrefix(String[] a, int lo, int hi, int d) {
+		String first = a[lo];
+		int lcp = first.length() - d;
+		for (int i = lo + 1; i < hi && lcp > 0; i++) {
+			String s = a[i];
+			int max = Math.min(lcp, s.length() - d), k = 0;
+			while (k < max && s.charAt(d + k) == first.charAt(d + k)) {
+				k++;
+			}
+			lcp = k;
+		}
+		return Math.max(lcp, 0);
+	}
+
+	/**
+	 * Multikey quicksort of a[lo..hi) from depth d. The equal part goes on to
+	 * the next depth in a loop, so long common prefixes do not make the
+	 * recursion deep.
+	 */
+	private static void multikey(String[] a, int lo, int hi, int d) {
+		while (hi - lo > INSERTION_CUTOFF) {
+			int mid = (lo + hi) >>> 1;
+			int p = median(charAt(a[lo], d), charAt(a[mid], d), charAt(a[hi - 1], d));
+
+			// three way partition: [lo, lt) < p, [lt, gt) == p, [gt, hi) > p
+			int lt = lo, gt = hi, i = lo;
+			while (i < gt) {
+				int c = charAt(a[i], d);
+				if (c < p) {
+					swap(a, lt++, i++);
+				} else if (c > p) {
+					swap(a, i, --gt);
+				} else {
+					i++;
+				}
+			}
+			multikey(a, lo, lt, d);
+			multikey(a, gt, hi, d);
+			if (p == 0) { // strings in the middle have ended, and are equal
+				return;
+			}
+			lo = lt;
+			hi = gt;
+			d++;
+		}
+		insertionSort(a, lo, hi, d);
+	}
+
+	private static void insertionSort(String[] a, int lo, int hi, int d) {
+		for (int i = lo + 1; i < hi; i++) {
+			String s = a[i];
+			int j = i - 1;
+			while (j >= lo && less(s, a[j], d)) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = s;
+		}
+	}
+
+	/**
+	 * Tells whether s comes before t, when both agree on their first d
+	 * characters
+	 */
+	private static boolean less(String s, String t, int d) {
+		int ls = s.length(), lt = t.length(), max = Math.min(ls, lt);
+		for (int k = d; k < max; k++) {
+			char cs = s.charAt(k), ct = t.charAt(k);
+			if (cs != ct) {
+				return cs < ct;
+			}
+		}
+		return ls < lt;
+	}
+
+	private static int median(int x, int y, int z) {
+		if (x < y) {
+			return y < z ? y : x < z ? z : x;
+		}
+		return x < z ? x : y < z ? z : y;
+	}
+
+	private static void swap(String[] a, int i, int j) {
+		String tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+}
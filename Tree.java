@@ -1,5 +1,7 @@
 package structures;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
 
 /**
@@ -19,6 +21,12 @@ public class Tree {
 	 */
 	Scanner sc;
 
+	/**
+	 * Number of characters read at a time when building the tree from a
+	 * reader
+	 */
+	static final int READ_BUFFER = 1 << 13;
+
 	/**
 	 * Initializes this tree object with scanner for input HTML file
 	 * 
@@ -30,105 +38,346 @@ public class Tree {
 		root = null;
 	}
 
+	/**
+	 * Initializes this tree object with no input, for a tree that is built
+	 * from a reader with build(Reader)
+	 */
+	public Tree() {
+		this(null);
+	}
+
 	/**
 	 * Builds the DOM tree from input HTML file. The root of the tree is stored
 	 * in the root field.
 	 */
 	public void build() {
-		Stack<TagNode> dom = new Stack<TagNode>();
-		TagNode ptr = null;
+		Builder b = new Builder();
 		String s = null;
-		boolean pt = false;
 
 		while (sc.hasNext()) {
 			s = sc.nextLine();
 
-			if (root == null) {
-				// System.out.println("root = null");
-				root = new TagNode(removeBrackets(s), null, null);
-				ptr = root;
-				dom.push(ptr);
-				pt = true;
-				// System.out.println(root.tag);
-			} else {
-				if (isTag(s)) {
-					// System.out.println(s + "is a tag");
-					s = removeBrackets(s);
-					if (s.charAt(0) == '/') {
-						while (!dom.peek().tag.equals(s.substring(1))) {
-							dom.pop();
+			if (b.root == null) {
+				b.open(removeBrackets(s));
+			} else if (isTag(s)) {
+				s = removeBrackets(s);
+				if (s.charAt(0) == '/') {
+					b.close(tagName(s, 1, s.length()));
+				} else {
+					b.open(tagName(s, 0, s.length()));
+				}
+			} else { // s is not a Tag
+				b.text(s);
+			}
+		}
+		root = b.root;
+	}
+
+	/**
+	 * Builds the DOM tree from HTML read from a reader, in one pass over its
+	 * characters. The HTML is split into tags and text as it is read, so
+	 * unlike build() it may have any number of tags on a line, and text
+	 * between them. Tags that are not known are kept as text. Every line of
+	 * text between tags is a text node; text that is only white space is
+	 * dropped, except for lines that have nothing else on them, which are
+	 * kept as build() keeps them. For input with one tag or text per line the
+	 * tree is the same as that of build(). The root of the tree is stored in
+	 * the root field.
+	 * 
+	 * @param in
+	 *            Reader of the HTML, read to its end but not closed
+	 * @throws IOException
+	 *             If there is an error reading
+	 */
+	public void build(Reader in) throws IOException {
+		Builder b = new Builder();
+		char[] buf = new char[READ_BUFFER];
+		StringBuilder run = new StringBuilder(); // text of the line so far
+		StringBuilder tok = new StringBuilder(); // tag being read, from its '<'
+		ArrayList<String> blank = new ArrayList<String>(); // blank lines not yet added
+		boolean inTag = false, lineHasTag = false, cr = false;
+		int n;
+		while ((n = in.read(buf)) >= 0) {
+			for (int i = 0; i < n; i++) {
+				char c = buf[i];
+				if (inTag) {
+					if (c == '>') {
+						inTag = false;
+						boolean closing = tok.length() > 1 && tok.charAt(1) == '/';
+						String name = tagName(tok, closing ? 2 : 1, tok.length());
+						if (name == null) { // not a known tag, so text
+							run.append(tok).append('>');
+							continue;
 						}
-						ptr = dom.peek();
-						pt = true;
-					} else {
-						// System.out.println("went into else statement");
-						if (pt == true && ptr.firstChild == null) {
-							ptr.firstChild = new TagNode(s, null, null);
-							ptr = ptr.firstChild;
-							pt = true;
-							// System.out.println("ptr's first child is: " +
-							// ptr);
+						if (!isBlank(run)) {
+							b.text(run.toString(), blank);
+						}
+						run.setLength(0);
+						if (closing) {
+							b.close(name, blank);
 						} else {
-							ptr.sibling = new TagNode(s, null, null);
-							// System.out.println("ptr: " + ptr);
-							ptr = ptr.sibling;
-							pt = true;
-							// System.out.println("ptr's sibling is: " + ptr);
+							b.open(name, blank);
 						}
-						dom.push(ptr);
+						lineHasTag = true;
+						continue;
 					}
-				} else { // s is not a Tag
-					// System.out.println(s + "is not a tag");
-					if (pt == true && ptr.firstChild == null) {
-						ptr.firstChild = new TagNode(s, null, null);
-						ptr = ptr.firstChild;
-						pt = false;
-						// System.out.println("ptr's first child is: " + ptr);
-					} else {
-						ptr.sibling = new TagNode(s, null, null);
-						ptr = ptr.sibling;
-						pt = false;
-						// System.out.println("ptr's sibling is: " + ptr);
+					if (c != '<' && c != '\n' && c != '\r') {
+						tok.append(c);
+						continue;
 					}
-					dom.push(ptr);
+					// no '>' before the next tag or line, so text
+					run.append(tok);
+					inTag = false;
 				}
+				if (c == '\n' && cr) { // second half of \r\n
+					cr = false;
+					continue;
+				}
+				cr = c == '\r';
+				if (c == '<') {
+					inTag = true;
+					tok.setLength(0);
+					tok.append(c);
+				} else if (c == '\n' || c == '\r') {
+					if (!isBlank(run)) {
+						b.text(run.toString(), blank);
+					} else if (!lineHasTag) {
+						blank.add(run.toString());
+					}
+					run.setLength(0);
+					lineHasTag = false;
+				} else {
+					run.append(c);
+				}
+			}
+		}
+		if (inTag) {
+			run.append(tok);
+		}
+		if (!isBlank(run)) {
+			b.text(run.toString(), blank);
+		}
+		// blank lines at the end are dropped, as build() drops them
+		root = b.root;
+	}
+
+	/**
+	 * Puts together a DOM tree from tags and text given one at a time, in
+	 * the order they appear in the HTML
+	 */
+	private static class Builder {
+		TagNode root = null;
+		Stack<TagNode> dom = new Stack<TagNode>();
+		TagNode ptr = null;
 
-				// System.out.println("ptr: " + ptr.tag);
+		/**
+		 * True if the next node goes under ptr if ptr has no children yet,
+		 * false if it goes after ptr
+		 */
+		boolean pt = false;
 
+		/**
+		 * Adds a node after ptr, or under it if ptr is a tag with no children
+		 */
+		void add(String s) {
+			if (root == null) {
+				root = new TagNode(s, null, null);
+				ptr = root;
+			} else if (pt == true && ptr.firstChild == null) {
+				ptr.firstChild = new TagNode(s, null, null);
+				ptr = ptr.firstChild;
+			} else {
+				ptr.sibling = new TagNode(s, null, null);
+				ptr = ptr.sibling;
 			}
+			dom.push(ptr);
+		}
+
+		void open(String tag) {
+			add(tag);
+			pt = true;
+		}
+
+		/**
+		 * Closes the latest open tag of a name. A close with no matching open
+		 * tag is ignored.
+		 */
+		void close(String tag) {
+			int i = dom.size() - 1;
+			while (i >= 0 && !dom.get(i).tag.equals(tag)) {
+				i--;
+			}
+			if (i < 0) {
+				return;
+			}
+			dom.setSize(i + 1);
+			ptr = dom.peek();
+			pt = true;
+		}
+
+		void text(String s) {
+			add(s);
+			pt = false;
+		}
+
+		/**
+		 * Adds the blank lines that come before a tag or text, as text
+		 */
+		void blanks(ArrayList<String> blank) {
+			for (String s : blank) {
+				text(s);
+			}
+			blank.clear();
+		}
+
+		void open(String tag, ArrayList<String> blank) {
+			blanks(blank);
+			open(tag);
+		}
+
+		void close(String tag, ArrayList<String> blank) {
+			blanks(blank);
+			close(tag);
+		}
+
+		void text(String s, ArrayList<String> blank) {
+			blanks(blank);
+			text(s);
 		}
+	}
 
+	private static boolean isBlank(CharSequence s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isWhitespace(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	private static String removeBrackets(String s) {
-		String n = "";
+		StringBuilder n = new StringBuilder(s.length());
 		for (int i = 0; i < s.length(); i++) {
-			if (s.charAt(i) == '<' || s.charAt(i) == '>') {
-				continue;
-			} else {
-				n += s.charAt(i);
+			char c = s.charAt(i);
+			if (c != '<' && c != '>') {
+				n.append(c);
 			}
 		}
-		return n;
+		return n.toString();
 	}
 
 	private static boolean isTag(String t) {
-		if (!t.contains("<") || !t.contains(">")) {
+		if (t.indexOf('<') < 0 || t.indexOf('>') < 0) {
 			return false;
-		} else {
-			String s = removeBrackets(t);
-			if (s.equals("html") || s.equals("body") || s.equals("p") || s.equals("em") || s.equals("b")
-					|| s.equals("table") || s.equals("tr") || s.equals("td") || s.equals("ol") || s.equals("ul")
-					|| s.equals("li")) {
-				return true;
-			} else if (s.equals("/html") || s.equals("/body") || s.equals("/p") || s.equals("/em") || s.equals("/b")
-					|| s.equals("/table") || s.equals("/tr") || s.equals("/td") || s.equals("/ol") || s.equals("/ul")
-					|| s.equals("/li")) {
-				return true;
-			} else {
+		}
+		String s = removeBrackets(t);
+		int from = s.startsWith("/") ? 1 : 0;
+		return tagName(s, from, s.length()) != null;
+	}
+
+	/**
+	 * Recognizes a tag name, without making a string for it
+	 * 
+	 * @param s
+	 *            Characters that hold the name
+	 * @param from
+	 *            Index of the first character of the name
+	 * @param to
+	 *            Index after the last character of the name
+	 * @return The name, as a constant string, or null if it is not a known tag
+	 */
+	private static String tagName(CharSequence s, int from, int to) {
+		switch (to - from) {
+		case 1:
+			switch (s.charAt(from)) {
+			case 'p':
+				return "p";
+			case 'b':
+				return "b";
+			}
+			return null;
+		case 2:
+			char c0 = s.charAt(from), c1 = s.charAt(from + 1);
+			switch (c0) {
+			case 'e':
+				return c1 == 'm' ? "em" : null;
+			case 't':
+				return c1 == 'r' ? "tr" : c1 == 'd' ? "td" : null;
+			case 'o':
+				return c1 == 'l' ? "ol" : null;
+			case 'u':
+				return c1 == 'l' ? "ul" : null;
+			case 'l':
+				return c1 == 'i' ? "li" : null;
+			}
+			return null;
+		case 4:
+			return matches(s, from, "html") ? "html" : matches(s, from, "body") ? "body" : null;
+		case 5:
+			return matches(s, from, "table") ? "table" : null;
+		}
+		return null;
+	}
+
+	private static boolean matches(CharSequence s, int from, String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (s.charAt(from + i) != name.charAt(i)) {
 				return false;
 			}
 		}
+		return true;
+	}
+
+	/**
+	 * Visits the nodes of a DOM tree, for walk
+	 */
+	interface Visitor {
+		/**
+		 * Visits a node, and may change it and the nodes around it
+		 * 
+		 * @param ptr
+		 *            Node
+		 * @return Null to go on to the children of the node, then to its
+		 *         sibling; or, if the node was rewritten into a run of
+		 *         siblings, the last node of the run, in which case the walk
+		 *         skips the children of the run and goes on to the sibling of
+		 *         that last node
+		 */
+		TagNode visit(TagNode ptr);
+	}
+
+	/**
+	 * Walks a DOM tree in preorder - a node, then its children, then its
+	 * siblings - as a recursion on firstChild and then sibling would, but in a
+	 * loop. The children and sibling of a node are looked up only after the
+	 * node is visited, so they may be changed by the visit. The nodes whose
+	 * siblings are still to be walked are kept on a stack, which is only as
+	 * deep as the tree, however many siblings a node has.
+	 * 
+	 * @param root
+	 *            Node to start at, the walk also goes through its siblings
+	 * @param v
+	 *            Visitor
+	 */
+	static void walk(TagNode root, Visitor v) {
+		ArrayDeque<TagNode> pending = new ArrayDeque<TagNode>();
+		TagNode ptr = root;
+		while (true) {
+			if (ptr == null) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				ptr = pending.pop().sibling;
+				continue;
+			}
+			TagNode last = v.visit(ptr);
+			if (last != null) {
+				ptr = last.sibling;
+			} else {
+				pending.push(ptr);
+				ptr = ptr.firstChild;
+			}
+		}
 	}
 
 	/**
@@ -143,15 +392,15 @@ public class Tree {
 		rrep(root, oldTag, newTag);
 	}
 
-	private void rrep(TagNode ptr, String oldTag, String newTag) {
-		if (ptr == null) {
-			return;
-		}
-		if (ptr.tag.equals(oldTag)) {
-			ptr.tag = newTag;
-		}
-		rrep(ptr.firstChild, oldTag, newTag);
-		rrep(ptr.sibling, oldTag, newTag);
+	private void rrep(TagNode root, final String oldTag, final String newTag) {
+		walk(root, new Visitor() {
+			public TagNode visit(TagNode ptr) {
+				if (ptr.tag.equals(oldTag)) {
+					ptr.tag = newTag;
+				}
+				return null;
+			}
+		});
 	}
 
 	/**
@@ -166,26 +415,26 @@ public class Tree {
 		rbold(root, row);
 	}
 
-	private void rbold(TagNode ptr, int row) {
-		if (ptr == null) {
-			return;
-		}
-		if (ptr.tag.equals("table")) {
-			int c = 0;
-			TagNode p = ptr.firstChild;
-			while (p != null) {
-				if (p.tag.equals("tr")) {
-					c++;
-				}
-				if (c == row) {
-					p.tag = "b";
-					p.firstChild = new TagNode("tr", p.firstChild, null);
+	private void rbold(TagNode root, final int row) {
+		walk(root, new Visitor() {
+			public TagNode visit(TagNode ptr) {
+				if (ptr.tag.equals("table")) {
+					int c = 0;
+					TagNode p = ptr.firstChild;
+					while (p != null) {
+						if (p.tag.equals("tr")) {
+							c++;
+						}
+						if (c == row) {
+							p.tag = "b";
+							p.firstChild = new TagNode("tr", p.firstChild, null);
+						}
+						p = p.sibling;
+					}
 				}
-				p = p.sibling;
+				return null;
 			}
-		}
-		rbold(ptr.firstChild, row);
-		rbold(ptr.sibling, row);
+		});
 	}
 
 	/**
@@ -208,52 +457,48 @@ public class Tree {
 		}
 	}
 
-	private void rremove1(TagNode ptr, String tag) {
-		if (ptr == null) {
-			return;
-		}
-		if (ptr.tag.equals(tag)) {
-			ptr.tag = ptr.firstChild.tag;
-			TagNode x = ptr.firstChild;
-			while (x.sibling != null) {
-				x = x.sibling;
-			}
-			x.sibling = ptr.sibling;
-			if (ptr.firstChild.sibling != null) {
-				ptr.sibling = ptr.firstChild.sibling;
+	private void rremove1(TagNode root, final String tag) {
+		walk(root, new Visitor() {
+			public TagNode visit(TagNode ptr) {
+				if (ptr.tag.equals(tag)) {
+					ptr.tag = ptr.firstChild.tag;
+					TagNode x = ptr.firstChild;
+					while (x.sibling != null) {
+						x = x.sibling;
+					}
+					x.sibling = ptr.sibling;
+					if (ptr.firstChild.sibling != null) {
+						ptr.sibling = ptr.firstChild.sibling;
+					}
+					ptr.firstChild = ptr.firstChild.firstChild;
+				}
+				return null;
 			}
-			ptr.firstChild = ptr.firstChild.firstChild;
-		}
-		rremove1(ptr.firstChild, tag);
-		rremove1(ptr.sibling, tag);
+		});
 	}
 
-	private void rremove2(TagNode ptr, String tag) {
-		if (ptr == null) {
-			return;
-		}
-		if (ptr.tag.equals(tag)) {
-			if (ptr.firstChild.tag.equals("li")) {
-				ptr.firstChild.tag = "p";
-			}
-			ptr.tag = ptr.firstChild.tag;
-			TagNode x = ptr.firstChild;
-			System.out.println("found tag, childNode: " + ptr);
-			while (x.sibling != null) {
-				x = x.sibling;
-				System.out.println("sibling: " + ptr);
-				if (x.tag.equals("li")) {
-					x.tag = "p";
-					System.out.println("changed li to p");
+	private void rremove2(TagNode root, final String tag) {
+		walk(root, new Visitor() {
+			public TagNode visit(TagNode ptr) {
+				if (ptr.tag.equals(tag)) {
+					if (ptr.firstChild.tag.equals("li")) {
+						ptr.firstChild.tag = "p";
+					}
+					ptr.tag = ptr.firstChild.tag;
+					TagNode x = ptr.firstChild;
+					while (x.sibling != null) {
+						x = x.sibling;
+						if (x.tag.equals("li")) {
+							x.tag = "p";
+						}
+					}
+					x.sibling = ptr.sibling;
+					ptr.sibling = ptr.firstChild.sibling;
+					ptr.firstChild = ptr.firstChild.firstChild;
 				}
+				return null;
 			}
-			x.sibling = ptr.sibling;
-			ptr.sibling = ptr.firstChild.sibling;
-			System.out.println();
-			ptr.firstChild = ptr.firstChild.firstChild;
-		}
-		rremove2(ptr.firstChild, tag);
-		rremove2(ptr.sibling, tag);
+		});
 	}
 
 	/**
@@ -268,63 +513,64 @@ public class Tree {
 		radd(root, word, tag);
 	}
 
-	private void radd(TagNode ptr, String origword, String tag){
-		if (ptr == null){
-			return;
-		}
-		String word = origword.toLowerCase();
-		if (ptr.tag.toLowerCase().contains(word)){
-			TagNode sib = ptr.sibling;
-			String q = ptr.tag;
-			String[] arr = q.split(" ");
-			int size = arr.length;
-			String nottag = null;
-			for (int i = 0; i < size; i ++){ 
-				String fword = arr[i].toLowerCase();
-				if ((fword.equals(word)) || (fword.substring(0,word.length()).equals(word) && !Character.isLetter(fword.charAt(word.length())) && fword.length() == (word.length() + 1))){
-					if (nottag == null){
-						ptr.tag = tag;
-						ptr.firstChild = new TagNode (arr[i], null, null);
-						nottag = "";
-					} else if (nottag.equals("")){
-						TagNode addedt = new TagNode(arr[i],null,null);
-						ptr.sibling = new TagNode (tag, addedt, null);
-						ptr = ptr.sibling;
-					} else {
-						if (ptr.tag.equals(q)){
-							ptr.tag = nottag;
-							TagNode addedt = new TagNode(arr[i], null, null);
-							ptr.sibling = new TagNode(tag, addedt, null);
-							ptr = ptr.sibling;
+	private void radd(TagNode root, String origword, final String tag) {
+		final String word = origword.toLowerCase();
+		walk(root, new Visitor() {
+			public TagNode visit(TagNode ptr) {
+				if (!ptr.tag.toLowerCase().contains(word)) {
+					return null;
+				}
+				// split the text into a run of text and tag nodes, whose
+				// children are not walked
+				TagNode sib = ptr.sibling;
+				String q = ptr.tag;
+				String[] arr = q.split(" ");
+				int size = arr.length;
+				String nottag = null;
+				for (int i = 0; i < size; i ++){ 
+					String fword = arr[i].toLowerCase();
+					if ((fword.equals(word)) || (fword.substring(0,word.length()).equals(word) && !Character.isLetter(fword.charAt(word.length())) && fword.length() == (word.length() + 1))){
+						if (nottag == null){
+							ptr.tag = tag;
+							ptr.firstChild = new TagNode (arr[i], null, null);
 							nottag = "";
-						} else {
-							ptr.sibling = new TagNode (nottag, null, null);
-							ptr = ptr.sibling;
-							TagNode addedt = new TagNode(arr[i], null, null);
-							ptr.sibling = new TagNode(tag, addedt, null);
+						} else if (nottag.equals("")){
+							TagNode addedt = new TagNode(arr[i],null,null);
+							ptr.sibling = new TagNode (tag, addedt, null);
 							ptr = ptr.sibling;
+						} else {
+							if (ptr.tag.equals(q)){
+								ptr.tag = nottag;
+								TagNode addedt = new TagNode(arr[i], null, null);
+								ptr.sibling = new TagNode(tag, addedt, null);
+								ptr = ptr.sibling;
+								nottag = "";
+							} else {
+								ptr.sibling = new TagNode (nottag, null, null);
+								ptr = ptr.sibling;
+								TagNode addedt = new TagNode(arr[i], null, null);
+								ptr.sibling = new TagNode(tag, addedt, null);
+								ptr = ptr.sibling;
+								nottag = "";
+							}
+						}
+					} else {
+						if (nottag == null){
 							nottag = "";
 						}
+						nottag += arr[i] + " ";
 					}
-				} else {
-					if (nottag == null){
-						nottag = "";
-					}
-					nottag += arr[i] + " ";
 				}
-			}
-			if (!nottag.equals("")){
-				if (!ptr.tag.equals(nottag.substring(0,(nottag.length()-1)))){
-					ptr.sibling = new TagNode(nottag, null, null);
-					ptr = ptr.sibling;
+				if (!nottag.equals("")){
+					if (!ptr.tag.equals(nottag.substring(0,(nottag.length()-1)))){
+						ptr.sibling = new TagNode(nottag, null, null);
+						ptr = ptr.sibling;
+					}
 				}
+				ptr.sibling = sib;
+				return ptr;
 			}
-			ptr.sibling = sib;
-			radd(ptr.sibling,word,tag);
-		} else {
-		radd(ptr.firstChild,word,tag);
-		radd(ptr.sibling,word,tag);
-		}
+		});
 	}
 
 	/**
@@ -336,25 +582,31 @@ public class Tree {
 	 */
 	public String getHTML() {
 		StringBuilder sb = new StringBuilder();
-		getHTML(root, sb);
-		return sb.toString();
-	}
-
-	private void getHTML(TagNode root, StringBuilder sb) {
-		for (TagNode ptr = root; ptr != null; ptr = ptr.sibling) {
-			if (ptr.firstChild == null) {
+		ArrayDeque<TagNode> open = new ArrayDeque<TagNode>(); // tags not yet closed
+		TagNode ptr = root;
+		while (true) {
+			if (ptr == null) {
+				if (open.isEmpty()) {
+					break;
+				}
+				TagNode parent = open.pop();
+				sb.append("</");
+				sb.append(parent.tag);
+				sb.append(">\n");
+				ptr = parent.sibling;
+			} else if (ptr.firstChild == null) {
 				sb.append(ptr.tag);
 				sb.append("\n");
+				ptr = ptr.sibling;
 			} else {
 				sb.append("<");
 				sb.append(ptr.tag);
 				sb.append(">\n");
-				getHTML(ptr.firstChild, sb);
-				sb.append("</");
-				sb.append(ptr.tag);
-				sb.append(">\n");
+				open.push(ptr);
+				ptr = ptr.firstChild;
 			}
 		}
+		return sb.toString();
 	}
 
 }
@@ -0,0 +1,235 @@
+package structures;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Scanner;
+
+/**
+ * This class times the DOM tree on large generated HTML. It is run as
+ *
+ * <pre>
+ * java structures.TreeBench mode [count]
+ * </pre>
+ *
+ * where mode is parse, for build(Reader) against build() on a file of a
+ * number of megabytes, wide, for the tree operations on a table and a list
+ * of a number of rows, or deep, for the tree operations on tags nested a
+ * number of levels deep. The operations walk the tree in a loop, so neither
+ * shape can overflow the stack.
+ */
+public class TreeBench {
+
+	/**
+	 * Times build() with a Scanner on the file, against build(Reader) on the
+	 * same file and on a file of the same tags and text run together on
+	 * fewer lines. The file is made of tables, lists and paragraphs of short
+	 * text, one tag or line of text per line, as build() needs.
+	 *
+	 * @param mb
+	 *            Size of the file, in megabytes
+	 * @throws IOException
+	 *             If there is an error reading or writing the files
+	 */
+	static void parse(long mb) throws IOException {
+		final File lines = File.createTempFile("tree", ".html"), packed = File.createTempFile("tree", ".html");
+		try {
+			write(lines, mb << 20, "\n");
+			write(packed, mb << 20, "");
+			report("Tree.build(), Scanner", lines.length(), Bench.time(new Bench.Task() {
+				public long run() {
+					try {
+						Scanner sc = new Scanner(lines);
+						try {
+							Tree tree = new Tree(sc);
+							tree.build();
+							return tree.root.tag.length();
+						} finally {
+							sc.close();
+						}
+					} catch (FileNotFoundException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, 1, 3));
+			report("Tree.build(Reader)", lines.length(), Bench.time(new Bench.Task() {
+				public long run() {
+					return read(lines).root.tag.length();
+				}
+			}, 1, 3));
+			report("Tree.build(Reader), packed tags", packed.length(), Bench.time(new Bench.Task() {
+				public long run() {
+					return read(packed).root.tag.length();
+				}
+			}, 1, 3));
+		} finally {
+			lines.delete();
+			packed.delete();
+		}
+	}
+
+	/**
+	 * Times the tree operations on a table of a number of rows and a list of
+	 * as many items, each a sibling of the one before it
+	 *
+	 * @param n
+	 *            Number of rows and of items
+	 */
+	static void wide(int n) {
+		StringBuilder sb = new StringBuilder("<html>\n<body>\n<table>\n");
+		for (int i = 0; i < n; i++) {
+			sb.append("<tr>\n<td>\nhello world\n</td>\n</tr>\n");
+		}
+		sb.append("</table>\n<ul>\n");
+		for (int i = 0; i < n; i++) {
+			sb.append("<li>\nhello world\n</li>\n");
+		}
+		sb.append("</ul>\n</body>\n</html>\n");
+		operations("wide, " + n + " rows", sb.toString(), n);
+	}
+
+	/**
+	 * Times the tree operations on em tags nested a number of levels deep,
+	 * around one line of text
+	 *
+	 * @param n
+	 *            Number of levels
+	 */
+	static void deep(int n) {
+		StringBuilder sb = new StringBuilder("<html>\n<body>\n");
+		for (int i = 0; i < n; i++) {
+			sb.append("<em>\n");
+		}
+		sb.append("hello world\n");
+		for (int i = 0; i < n; i++) {
+			sb.append("</em>\n");
+		}
+		sb.append("</body>\n</html>\n");
+		operations("deep, " + n + " levels", sb.toString(), n);
+	}
+
+	/**
+	 * Times replaceTag, boldRow, removeTag, addTag and getHTML, each on a
+	 * new tree built from the HTML in an untimed setup
+	 */
+	private static void operations(String shape, final String html, final int n) {
+		final Tree[] tree = new Tree[1];
+		String[] names = { "replaceTag", "boldRow", "removeTag", "addTag", "getHTML" };
+		for (int op = 0; op < names.length; op++) {
+			final int which = op;
+			Bench.Result result = Bench.time(new Bench.Task() {
+				public void setup() {
+					tree[0] = new Tree();
+					try {
+						tree[0].build(new StringReader(html));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+
+				public long run() {
+					Tree t = tree[0];
+					switch (which) {
+					case 0:
+						t.replaceTag("em", "b");
+						t.replaceTag("td", "th");
+						break;
+					case 1:
+						t.boldRow(n / 2);
+						break;
+					case 2:
+						t.removeTag("em");
+						t.removeTag("ul");
+						break;
+					case 3:
+						t.addTag("world", "b");
+						break;
+					default:
+						return t.getHTML().length();
+					}
+					return t.root.tag.length();
+				}
+			}, 1, 5);
+			System.out.println(String.format("%-42s %s", "Tree." + names[op] + ", " + shape, result));
+		}
+	}
+
+	/**
+	 * Builds a tree from a file with build(Reader)
+	 */
+	private static Tree read(File file) {
+		try {
+			FileReader in = new FileReader(file);
+			try {
+				Tree tree = new Tree();
+				tree.build(in);
+				return tree;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes an HTML file of about a number of bytes: a body of blocks of a
+	 * table row, a list item and a paragraph. Every tag is followed by a
+	 * separator, a line break for one tag per line or nothing to run the tags
+	 * together; every line of text ends with a line break.
+	 */
+	private static void write(File file, long bytes, String sep) throws IOException {
+		BufferedWriter w = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			w.write("<html>" + sep + "<body>" + sep);
+			long written = 0;
+			for (int i = 0; written < bytes; i++) {
+				String block = "<table>" + sep + "<tr>" + sep + "<td>" + sep + "cell " + i + "\n</td>" + sep
+						+ "</tr>" + sep + "</table>" + sep + "<ul>" + sep + "<li>" + sep + "item " + i
+						+ " of the list\n</li>" + sep + "</ul>" + sep + "<p>" + sep + "some text and a\n<b>" + sep
+						+ "word\n</b>" + sep + "</p>" + sep;
+				w.write(block);
+				written += block.length();
+			}
+			w.write("</body>" + sep + "</html>\n");
+		} finally {
+			w.close();
+		}
+	}
+
+	/**
+	 * Prints the times of a build, and the megabytes read per second
+	 */
+	private static void report(String name, long bytes, Bench.Result result) {
+		System.out.println(String.format("%-42s %s  %,.1f MB/s", name, result, result.perSecond(bytes) / (1 << 20)));
+	}
+
+	/**
+	 * Runs a benchmark. The arguments are the mode and a count: the size of
+	 * the file in megabytes, which defaults to 20, or the number of rows or
+	 * levels, which defaults to 1000000.
+	 *
+	 * @param args
+	 *            Mode, count
+	 * @throws IOException
+	 *             If there is an error reading or writing
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = args.length > 0 ? args[0] : "parse";
+		long n = args.length > 1 ? Long.parseLong(args[1]) : mode.equals("parse") ? 20 : 1000000;
+		if (mode.equals("parse")) {
+			parse(n);
+		} else if (mode.equals("wide")) {
+			wide((int) n);
+		} else if (mode.equals("deep")) {
+			deep((int) n);
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+}
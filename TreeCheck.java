@@ -0,0 +1,151 @@
+package structures;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * This class checks Tree.build(Reader) against Tree.build() on many random
+ * HTML files from a seeded generator, and throws an exception at the first
+ * file on which they disagree. It is run as
+ *
+ * <pre>
+ * java structures.TreeCheck [files] [seed]
+ * </pre>
+ */
+public class TreeCheck {
+
+	/**
+	 * Tags of the random files
+	 */
+	static final String[] TAGS = { "p", "em", "b", "table", "tr", "td", "ol", "ul", "li" };
+
+	/**
+	 * Checks that build(Reader) makes the same tree as build() from a file of
+	 * one tag or line of text per line, with \n or \r\n line ends and blank
+	 * lines, and that the same file with its tags run together on fewer lines
+	 * makes the same tree again
+	 *
+	 * @param random
+	 *            Source of the files
+	 * @throws IOException
+	 *             If there is an error reading
+	 * @throws IllegalStateException
+	 *             If the trees differ
+	 */
+	static void build(Random random) throws IOException, IllegalStateException {
+		ArrayList<String> lines = new ArrayList<String>();
+		lines.add("<html>");
+		lines.add("<body>");
+		lines(random, lines, 0);
+		lines.add("</body>");
+		lines.add("</html>");
+		StringBuilder sb = new StringBuilder();
+		String eol = random.nextBoolean() ? "\n" : "\r\n";
+		for (String line : lines) {
+			sb.append(line).append(eol);
+		}
+		if (random.nextBoolean()) {
+			sb.append("\n  \n");
+		}
+		String html = sb.toString();
+
+		Tree expected = new Tree(new Scanner(html));
+		expected.build();
+		Tree actual = new Tree();
+		actual.build(new StringReader(html));
+		same("build(Reader)", html, expected, actual);
+
+		// the same tags and text, with no line breaks between tags
+		sb.setLength(0);
+		for (String line : lines) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			boolean tag = line.startsWith("<") && line.indexOf(' ') < 0 && line.indexOf('<', 1) < 0;
+			if (tag) {
+				sb.append(line);
+			} else {
+				if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+					sb.append('\n');
+				}
+				sb.append(line).append('\n');
+			}
+		}
+		String packed = sb.toString();
+		actual = new Tree();
+		actual.build(new StringReader(packed));
+		expected = new Tree();
+		expected.build(new StringReader(html.replaceAll("(?m)^[ \t]*\r?\n", "")));
+		same("build(Reader) of packed tags", packed, expected, actual);
+	}
+
+	/**
+	 * Adds random lines of nested tags and text, with text that has '<' in
+	 * it, tags that are not known, and blank lines
+	 */
+	private static void lines(Random random, ArrayList<String> lines, int depth) {
+		for (int k = 1 + random.nextInt(4); k > 0; k--) {
+			if (depth < 5 && random.nextInt(3) > 0) {
+				String tag = TAGS[random.nextInt(TAGS.length)];
+				lines.add("<" + tag + ">");
+				lines(random, lines, depth + 1);
+				lines.add("</" + tag + ">");
+			} else {
+				int q = random.nextInt(10);
+				lines.add(q == 0 ? "" : q == 1 ? "  " : q == 2 ? "a <div> tag" : q == 3 ? "x < y"
+						: "word " + random.nextInt(100) + (random.nextBoolean() ? " more" : ""));
+			}
+		}
+	}
+
+	/**
+	 * Throws an exception if two trees differ in shape or in a tag, or give
+	 * different HTML
+	 */
+	private static void same(String name, String html, Tree expected, Tree actual) throws IllegalStateException {
+		if (!dump(expected.root).equals(dump(actual.root)) || !expected.getHTML().equals(actual.getHTML())) {
+			throw new IllegalStateException(name + " differs from build() on\n" + html);
+		}
+	}
+
+	/**
+	 * Writes a tree in preorder, with "." for every missing child or sibling
+	 */
+	private static String dump(TagNode root) {
+		StringBuilder sb = new StringBuilder();
+		ArrayList<TagNode> stack = new ArrayList<TagNode>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			TagNode ptr = stack.remove(stack.size() - 1);
+			if (ptr == null) {
+				sb.append(". ");
+				continue;
+			}
+			sb.append('(').append(ptr.tag).append(") ");
+			stack.add(ptr.sibling);
+			stack.add(ptr.firstChild);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Runs the checks. The arguments are the number of files, which defaults
+	 * to 2000, and the seed, which defaults to 1.
+	 *
+	 * @param args
+	 *            Number of files, seed
+	 * @throws IOException
+	 *             If there is an error reading a file
+	 */
+	public static void main(String[] args) throws IOException {
+		int files = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		for (int i = 0; i < files; i++) {
+			build(random);
+		}
+		System.out.println("Tree.build(Reader) ok");
+	}
+}